@@ -16,6 +16,24 @@ public class VertxDispatcher extends NatsDispatcher {
         internalStart(id, false);
     }
 
+    /**
+     * Stop passing messages to the context, they are held until delivery is resumed.
+     */
+    public void pauseDelivery() {
+        vertxIncoming.pauseDelivery();
+    }
+
+    /**
+     * Pass the held messages to the context in order and deliver directly again.
+     */
+    public void resumeDelivery() {
+        vertxIncoming.resumeDelivery();
+    }
+
+    public boolean isDeliveryPaused() {
+        return vertxIncoming.isDeliveryPaused();
+    }
+
     @Override
     MessageQueue getMessageQueue() {
         return vertxIncoming;
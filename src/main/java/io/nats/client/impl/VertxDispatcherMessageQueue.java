@@ -4,11 +4,14 @@ import io.nats.client.MessageHandler;
 import io.vertx.core.impl.ContextInternal;
 
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.function.Predicate;
 
 public class VertxDispatcherMessageQueue extends MessageQueue {
     private final VertxDispatcher dispatcher;
     private final ContextInternal context;
+    private final ArrayDeque<Runnable> held = new ArrayDeque<>();
+    private boolean deliveryPaused;
 
     VertxDispatcherMessageQueue(VertxDispatcher dispatcher, ContextInternal context, NatsConnection conn) {
         super(true, conn.getOptions().getRequestCleanupInterval());
@@ -39,7 +42,7 @@ public class VertxDispatcherMessageQueue extends MessageQueue {
                 dispatcher.incrementDeliveredCount();
 
                 final MessageHandler finalHandler = handler;
-                context.runOnContext(e -> {
+                final Runnable delivery = () -> {
                     ContextInternal ctx = context.duplicate();
                     ctx.emit(v -> {
                         try {
@@ -49,12 +52,61 @@ public class VertxDispatcherMessageQueue extends MessageQueue {
                             dispatcher.connection.processException(ex);
                         }
                     });
-                });
+                };
+                synchronized (held) {
+                    if (deliveryPaused || !held.isEmpty()) {
+                        held.add(delivery);
+                        return true;
+                    }
+                }
+                context.runOnContext(e -> delivery.run());
             }
         }
         return true;
     }
 
+    /**
+     * Hold the deliveries instead of passing them to the context. Flow control and heartbeat
+     * status messages are held too, so their replies wait and the server throttles the consumer.
+     */
+    void pauseDelivery() {
+        synchronized (held) {
+            deliveryPaused = true;
+        }
+    }
+
+    /**
+     * Pass the held deliveries to the context in order and deliver directly again once they are passed on.
+     */
+    void resumeDelivery() {
+        synchronized (held) {
+            if (!deliveryPaused) {
+                return;
+            }
+            deliveryPaused = false;
+        }
+        context.runOnContext(e -> drainHeld());
+    }
+
+    boolean isDeliveryPaused() {
+        synchronized (held) {
+            return deliveryPaused;
+        }
+    }
+
+    private void drainHeld() {
+        while (true) {
+            final Runnable delivery;
+            synchronized (held) {
+                if (deliveryPaused || held.isEmpty()) {
+                    return;
+                }
+                delivery = held.poll();
+            }
+            delivery.run();
+        }
+    }
+
     @Override
     boolean push(NatsMessage msg, boolean internal) {
         throw new IllegalStateException("push(NatsMessage, boolean) not used.");
@@ -87,7 +139,9 @@ public class VertxDispatcherMessageQueue extends MessageQueue {
 
     @Override
     long length() {
-        return 0;
+        synchronized (held) {
+            return held.size();
+        }
     }
 
     @Override
@@ -0,0 +1,115 @@
+package io.nats.vertx;
+
+/**
+ * Metrics of a subscription sampled from the metadata of its messages, see {@link NatsStream#metrics}.
+ * Counts are totals since the subscription started, delays and processing times cover the interval
+ * since the previous sample.
+ */
+public class ConsumerMetrics {
+
+    /**
+     * Upper bounds of the processing time buckets in milliseconds, the last bucket has no bound.
+     */
+    public static final long[] PROCESSING_TIME_BUCKETS_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, Long.MAX_VALUE};
+
+    private final String subject;
+    private final long pending;
+    private final long ackPending;
+    private final long delivered;
+    private final long redelivered;
+    private final long averageDelayMillis;
+    private final long maxDelayMillis;
+    private final long[] processingTimeCounts;
+
+    public ConsumerMetrics(String subject, long pending, long ackPending, long delivered, long redelivered,
+                           long averageDelayMillis, long maxDelayMillis, long[] processingTimeCounts) {
+        this.subject = subject;
+        this.pending = pending;
+        this.ackPending = ackPending;
+        this.delivered = delivered;
+        this.redelivered = redelivered;
+        this.averageDelayMillis = averageDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.processingTimeCounts = processingTimeCounts;
+    }
+
+    /**
+     * The subject of the subscription.
+     * @return the subject
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * The number of messages of the consumer not yet delivered, as of the last delivered message. This is the lag.
+     * @return the pending count
+     */
+    public long getPending() {
+        return pending;
+    }
+
+    /**
+     * The number of messages delivered to this subscription and not yet acked, nak'd or terminated.
+     * Messages held longer than the ack wait are no longer counted, the server redelivers them.
+     * @return the ack pending count
+     */
+    public long getAckPending() {
+        return ackPending;
+    }
+
+    /**
+     * The number of messages delivered.
+     * @return the delivered count
+     */
+    public long getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * The number of delivered messages that had been delivered before.
+     * @return the redelivered count
+     */
+    public long getRedelivered() {
+        return redelivered;
+    }
+
+    /**
+     * The average time from the stream timestamp of a message to its delivery in the interval.
+     * @return the average delay in milliseconds
+     */
+    public long getAverageDelayMillis() {
+        return averageDelayMillis;
+    }
+
+    /**
+     * The max time from the stream timestamp of a message to its delivery in the interval.
+     * @return the max delay in milliseconds
+     */
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * The processing time histogram of the interval, one count per bucket of {@link #PROCESSING_TIME_BUCKETS_MILLIS}.
+     * For a push subscription it is the time spent in the handler, for a pull subscription the time
+     * from handing out a message to its ack, nak or term.
+     * @return the processing time counts
+     */
+    public long[] getProcessingTimeCounts() {
+        return processingTimeCounts.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "ConsumerMetrics{" +
+            "subject='" + subject + '\'' +
+            ", pending=" + pending +
+            ", ackPending=" + ackPending +
+            ", delivered=" + delivered +
+            ", redelivered=" + redelivered +
+            ", averageDelayMillis=" + averageDelayMillis +
+            ", maxDelayMillis=" + maxDelayMillis +
+            '}';
+    }
+}
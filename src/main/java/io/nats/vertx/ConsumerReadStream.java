@@ -0,0 +1,68 @@
+package io.nats.vertx;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.streams.ReadStream;
+
+import java.time.Duration;
+
+/**
+ * Continuous pull consumer as a read stream. Messages are pulled ahead of need in batches
+ * according to the ConsumeOptions, a new pull is issued once the pending messages or bytes of the
+ * current pull fall below the threshold, so there is no gap between batches.
+ * Pausing the stream or not fetching stops issuing pulls once a batch worth of messages is buffered,
+ * pulling starts again once the buffer is drained.
+ */
+public interface ConsumerReadStream extends ReadStream<NatsVertxMessage> {
+
+    /**
+     * The name of the stream.
+     * @return the stream name
+     */
+    String getStreamName();
+
+    /**
+     * The name of the consumer.
+     * @return the consumer name
+     */
+    String getConsumerName();
+
+    /**
+     * Whether pull requests are currently being issued.
+     * @return true if consuming
+     */
+    boolean isConsuming();
+
+    /**
+     * Batch the acks of this stream, see {@link SubscriptionReadStream#ackBatching(int, Duration)}.
+     * @param maxAcks the number of acks that triggers sending, 1 or less turns batching off
+     * @param maxDelay the max time an ack is held
+     * @return this stream
+     */
+    ConsumerReadStream ackBatching(int maxAcks, Duration maxDelay);
+
+    /**
+     * Stop consuming and end the stream. Messages that were pulled but not yet handled are dropped,
+     * the server redelivers them after the ack wait unless the consumer does not require acks.
+     * @return future that completes once the stream is stopped
+     */
+    Future<Void> stop();
+
+    @Override
+    ConsumerReadStream exceptionHandler(Handler<Throwable> handler);
+
+    @Override
+    ConsumerReadStream handler(Handler<NatsVertxMessage> handler);
+
+    @Override
+    ConsumerReadStream pause();
+
+    @Override
+    ConsumerReadStream resume();
+
+    @Override
+    ConsumerReadStream fetch(long amount);
+
+    @Override
+    ConsumerReadStream endHandler(Handler<Void> endHandler);
+}
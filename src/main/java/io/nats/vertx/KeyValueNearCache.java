@@ -0,0 +1,41 @@
+package io.nats.vertx;
+
+import io.vertx.core.Future;
+
+/**
+ * Local cache of the entries read through a key value bucket handle.
+ * Cached entries are updated or evicted by a watch on the whole bucket as revisions arrive,
+ * so reads of a cached key do not go to the server.
+ */
+public interface KeyValueNearCache {
+
+    /**
+     * The number of keys cached, including keys cached as not found or deleted.
+     * @return the size
+     */
+    int getSize();
+
+    /**
+     * The number of gets served from the cache.
+     * @return the hit count
+     */
+    long getHits();
+
+    /**
+     * The number of gets that went to the server.
+     * @return the miss count
+     */
+    long getMisses();
+
+    /**
+     * The part of the gets served from the cache, between 0 and 1.
+     * @return the hit ratio
+     */
+    double getHitRatio();
+
+    /**
+     * Stop the watch and drop the cache, gets go to the server again.
+     * @return future that completes when the watch is stopped
+     */
+    Future<Void> close();
+}
@@ -0,0 +1,44 @@
+package io.nats.vertx;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.streams.ReadStream;
+
+/**
+ * Read stream over the entries of a key value bucket, read from an ordered consumer as the items are handled.
+ * When the stream is paused, or the handler is not keeping up with fetch demand, the stream buffers up to
+ * its max and then holds the deliveries and their flow control, so the server stops sending.
+ * The stream ends after the last item, or when it is cancelled.
+ * @param <T> the type of the items
+ */
+public interface KeyValueReadStream<T> extends ReadStream<T> {
+
+    /**
+     * The default number of items buffered before delivery is paused.
+     */
+    int DEFAULT_MAX_BUFFERED = 1000;
+
+    /**
+     * Stop reading before the last item and end the stream. Buffered items are dropped.
+     * @return future that completes once the consumer is removed
+     */
+    Future<Void> cancel();
+
+    @Override
+    KeyValueReadStream<T> exceptionHandler(Handler<Throwable> handler);
+
+    @Override
+    KeyValueReadStream<T> handler(Handler<T> handler);
+
+    @Override
+    KeyValueReadStream<T> pause();
+
+    @Override
+    KeyValueReadStream<T> resume();
+
+    @Override
+    KeyValueReadStream<T> fetch(long amount);
+
+    @Override
+    KeyValueReadStream<T> endHandler(Handler<Void> endHandler);
+}
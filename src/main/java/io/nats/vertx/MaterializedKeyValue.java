@@ -0,0 +1,67 @@
+package io.nats.vertx;
+
+import io.nats.client.api.KeyValueEntry;
+import io.vertx.core.Future;
+
+import java.util.List;
+import java.util.NavigableMap;
+
+/**
+ * In-memory replica of a whole key value bucket. The reads are served from a concurrent map
+ * without going to the server, a watch of the bucket applies every new revision to it.
+ */
+public interface MaterializedKeyValue {
+
+    /**
+     * Get the entry for a key when the key exists and is live (not deleted and not purged)
+     * @param key the key
+     * @return the entry or null if not found
+     */
+    KeyValueEntry get(String key);
+
+    /**
+     * Get the keys of the live entries.
+     * @return the keys, in order
+     */
+    List<String> keys();
+
+    /**
+     * Get the keys of the live entries that start with a prefix.
+     * @param prefix the prefix, for instance "config.service."
+     * @return the keys, in order
+     */
+    List<String> keys(String prefix);
+
+    /**
+     * Get a read only view of the live entries whose key starts with a prefix.
+     * @param prefix the prefix
+     * @return the entries by key, in order
+     */
+    NavigableMap<String, KeyValueEntry> scan(String prefix);
+
+    /**
+     * The number of live entries.
+     * @return the size
+     */
+    int size();
+
+    /**
+     * The last revision applied to the replica.
+     * @return the revision, 0 for an empty bucket
+     */
+    long getRevision();
+
+    /**
+     * Wait for the replica to apply a revision, for instance the one returned by a put,
+     * to read what was written.
+     * @param revision the revision
+     * @return future that completes once the revision or a later one is applied
+     */
+    Future<Void> awaitRevision(long revision);
+
+    /**
+     * Stop the watch and drop the entries.
+     * @return future that completes when the watch is stopped
+     */
+    Future<Void> close();
+}
@@ -296,6 +296,14 @@ public interface NatsClient extends WriteStream<Message> {
 
     Future<Void> close();
 
+    /**
+     * Drain and close. The JetStream contexts of this client drain first, see {@link NatsStream#drain(Duration)},
+     * then the connection drains its remaining subscriptions and closes.
+     * @param timeout the max time to wait for each step
+     * @return future that completes once the connection is closed
+     */
+    Future<Void> drain(Duration timeout);
+
     @Override
     default Future<Void> end() {
         return close();
@@ -15,6 +15,7 @@ import java.util.concurrent.TimeUnit;
 public class NatsOptions {
     public static final Duration DEFAULT_NEXT_TIMEOUT = Duration.ofNanos(1);
     public static final long DEFAULT_NO_MESSAGE_DELAY_MILLIS = 100;
+    public static final int DEFAULT_MAX_PUBLISH_IN_FLIGHT = 1000;
 
     private Options.Builder natsBuilder;
     private Vertx vertx;
@@ -23,6 +24,9 @@ public class NatsOptions {
     private VertxOptions vertxOptions;
     private Duration nextTimeout = DEFAULT_NEXT_TIMEOUT;
     private long noMessageDelayMillis = DEFAULT_NO_MESSAGE_DELAY_MILLIS;
+    private int maxPublishInFlight = DEFAULT_MAX_PUBLISH_IN_FLIGHT;
+    private Duration publishAckLatencyTarget;
+    private boolean dispatcherPooling;
 
     private Handler<Throwable> exceptionHandler;
 
@@ -163,6 +167,56 @@ public class NatsOptions {
         return this;
     }
 
+    public int getMaxPublishInFlight() {
+        return maxPublishInFlight;
+    }
+
+    /**
+     * Set the maximum number of JetStream publishes that can be waiting for their ack.
+     * Publishes over this limit are queued until an ack arrives.
+     * @param maxPublishInFlight the max in flight, less than 1 means the default
+     * @return this options.
+     */
+    public NatsOptions maxPublishInFlight(int maxPublishInFlight) {
+        this.maxPublishInFlight = maxPublishInFlight < 1
+            ? DEFAULT_MAX_PUBLISH_IN_FLIGHT
+            : maxPublishInFlight;
+        return this;
+    }
+
+    public Duration getPublishAckLatencyTarget() {
+        return publishAckLatencyTarget;
+    }
+
+    /**
+     * Make the JetStream publish window adaptive. The number of publishes waiting for their ack
+     * grows additively while acks come back within the target latency and is halved when
+     * acks are slower than the target or time out. The window never exceeds the max publish in flight.
+     * @param publishAckLatencyTarget the ack latency target, null for a fixed window of max publish in flight
+     * @return this options.
+     */
+    public NatsOptions adaptivePublishWindow(Duration publishAckLatencyTarget) {
+        this.publishAckLatencyTarget = publishAckLatencyTarget == null || publishAckLatencyTarget.isZero() || publishAckLatencyTarget.isNegative()
+            ? null
+            : publishAckLatencyTarget;
+        return this;
+    }
+
+    public boolean isDispatcherPooling() {
+        return dispatcherPooling;
+    }
+
+    /**
+     * Share dispatchers between JetStream push subscriptions, one dispatcher per event loop,
+     * instead of creating a dispatcher for every subscription.
+     * @param dispatcherPooling true to pool dispatchers
+     * @return this options.
+     */
+    public NatsOptions dispatcherPooling(boolean dispatcherPooling) {
+        this.dispatcherPooling = dispatcherPooling;
+        return this;
+    }
+
     public NatsOptions setVertxOptions(VertxOptions vertxOptions) {
         this.vertxOptions = vertxOptions;
         return this;
@@ -1,5 +1,6 @@
 package io.nats.vertx;
 
+import io.nats.client.ConsumeOptions;
 import io.nats.client.Message;
 import io.nats.client.PublishOptions;
 import io.nats.client.PullSubscribeOptions;
@@ -9,11 +10,13 @@ import io.nats.client.impl.Headers;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.core.streams.WriteStream;
 
 import java.time.Duration;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * Provides a Vert.x WriteStream interface with Futures and Promises.
@@ -35,6 +38,20 @@ public interface NatsStream extends WriteStream<Message> {
      */
     Future<PublishAck> publish(Message data);
 
+    /**
+     * The number of publishes that can currently wait for their ack.
+     * This is the max publish in flight unless the publish window is adaptive,
+     * in which case it moves with the ack latency.
+     * @return the publish window
+     */
+    int getPublishWindow();
+
+    /**
+     * The number of publishes currently waiting for their ack.
+     * @return the number of publishes in flight
+     */
+    int getPublishInFlight();
+
     /**
      * Publish message.
      * @param subject The message data.
@@ -58,6 +75,47 @@ public interface NatsStream extends WriteStream<Message> {
      */
     void publish(Message data, Handler<AsyncResult<PublishAck>> handler);
 
+    /**
+     * Publish a list of messages. All the messages are pipelined onto the connection
+     * within the publish window, they do not wait for each other's ack.
+     * If any of the publishes fail the future fails with a {@link PublishAllException}
+     * which holds the failures and the acks of the stored messages by index.
+     * @param messages the messages
+     * @return future of the acks, in the order of the messages
+     */
+    Future<List<PublishAck>> publishAll(List<Message> messages);
+
+    /**
+     * Publish a list of messages as a JetStream atomic batch, the stream stores
+     * either all the messages or none of them. The stream must allow atomic publish
+     * and the server must support it. The messages are sent without waiting for acks,
+     * only the last message, which commits the batch, is acked.
+     * @param messages the messages, at most the server's max batch size
+     * @return future of the commit ack, its sequence is the sequence of the last message
+     * and its batch size the number of messages stored
+     */
+    Future<PublishAck> publishAllAtomic(List<Message> messages);
+
+    /**
+     * Create an ordered writer for a subject, every append is conditional on the last sequence of the subject.
+     * Appends are sent one at a time, each one after the ack of the one before.
+     * @param subject the subject
+     * @param lastSequence the current last sequence of the subject, 0 if the subject has no messages
+     * @return the sequencer
+     */
+    SubjectSequencer sequencer(String subject, long lastSequence);
+
+    /**
+     * Create an ordered writer for a subject, every append is conditional on the last sequence of the subject.
+     * With atomic batches, appends made while one is waiting for its ack are sent together
+     * as one atomic batch, see {@link #publishAllAtomic(List)}.
+     * @param subject the subject
+     * @param lastSequence the current last sequence of the subject, 0 if the subject has no messages
+     * @param atomicBatches whether to pipeline queued appends as atomic batches
+     * @return the sequencer
+     */
+    SubjectSequencer sequencer(String subject, long lastSequence, boolean atomicBatches);
+
     /**
      * Subscribe to JetStream stream
      * @param subject The subject of the stream.
@@ -115,6 +173,126 @@ public interface NatsStream extends WriteStream<Message> {
             String subject) ;
 
 
+    /**
+     * Sample the metrics of all the subscriptions of this stream at the interval, the handler is called once per
+     * subscription and sample, see {@link ConsumerMetrics}. The metrics come from the metadata of the delivered
+     * messages, no request goes to the server. Pull subscriptions start recording with this call, pull subscriptions
+     * made later start with the next sample.
+     * @param interval the sample interval
+     * @param handler the metrics handler, null turns sampling off
+     * @return this stream
+     */
+    NatsStream metrics(Duration interval, Handler<ConsumerMetrics> handler);
+
+    /**
+     * Subscribe to a push consumer as a read stream with back pressure, see {@link PushSubscriptionReadStream}.
+     * Turn on flow control in the consumer configuration to let the server throttle a paused stream.
+     * @param subject the subject of the stream
+     * @param so the push subscribe options
+     * @param maxBuffered the number of messages buffered before delivery is paused
+     * @return future of the read stream
+     */
+    Future<PushSubscriptionReadStream> subscribeStream(String subject, PushSubscribeOptions so, int maxBuffered);
+
+    /**
+     * Subscribe to a push consumer as a read stream with back pressure, buffering up to
+     * {@link PushSubscriptionReadStream#DEFAULT_MAX_BUFFERED} messages before delivery is paused.
+     * @param subject the subject of the stream
+     * @param so the push subscribe options
+     * @return future of the read stream
+     */
+    default Future<PushSubscriptionReadStream> subscribeStream(String subject, PushSubscribeOptions so) {
+        return subscribeStream(subject, so, PushSubscriptionReadStream.DEFAULT_MAX_BUFFERED);
+    }
+
+    /**
+     * Subscribe a push consumer and process its messages concurrently partitioned by key, see {@link PartitionedProcessor}.
+     * The processor is called on the context of the partition of the key and completes its future once the message
+     * is processed. It must not ack the message, acks are sent in delivery order as the work completes.
+     * @param subject the subject of the stream
+     * @param so the push subscribe options
+     * @param partitionCount the number of partitions, each on its own event loop context
+     * @param keyMapper maps a message to its key, messages with the same key are processed in order
+     * @param processor the processing of a message
+     * @return future of the partitioned processor once subscribed
+     */
+    Future<PartitionedProcessor> subscribePartitioned(String subject, PushSubscribeOptions so, int partitionCount,
+                                                      Function<NatsVertxMessage, String> keyMapper,
+                                                      Function<NatsVertxMessage, Future<Void>> processor);
+
+    /**
+     * Subscribe a push consumer and process its messages concurrently partitioned by subject,
+     * see {@link #subscribePartitioned(String, PushSubscribeOptions, int, Function, Function)}.
+     * @param subject the subject of the stream
+     * @param so the push subscribe options
+     * @param partitionCount the number of partitions, each on its own event loop context
+     * @param processor the processing of a message
+     * @return future of the partitioned processor once subscribed
+     */
+    default Future<PartitionedProcessor> subscribePartitioned(String subject, PushSubscribeOptions so, int partitionCount,
+                                                              Function<NatsVertxMessage, Future<Void>> processor) {
+        return subscribePartitioned(subject, so, partitionCount, NatsVertxMessage::getSubject, processor);
+    }
+
+    /**
+     * Start pull workers on a durable consumer, see {@link PullWorkers}. Each worker is a pull subscription
+     * on its own event loop context with its own fetch loop, so a work queue consumer scales over the event loops.
+     * The handler is called on the context of the worker that fetched the message.
+     * @param subject the subject of the stream
+     * @param durable the durable name of the consumer, created by the first worker if it does not exist
+     * @param workerCount the number of workers
+     * @param batchSize the batch size of each fetch
+     * @param maxWaitMillis the maximum time a fetch waits, in milliseconds
+     * @param handler the message handler
+     * @return future of the workers once they are all subscribed
+     */
+    Future<PullWorkers> pullWorkers(String subject, String durable, int workerCount, int batchSize, long maxWaitMillis,
+                                    Handler<NatsVertxMessage> handler);
+
+    /**
+     * Start pull workers on a durable consumer with the default batch size and expiration of the consume options,
+     * see {@link #pullWorkers(String, String, int, int, long, Handler)}.
+     * @param subject the subject of the stream
+     * @param durable the durable name of the consumer, created by the first worker if it does not exist
+     * @param workerCount the number of workers
+     * @param handler the message handler
+     * @return future of the workers once they are all subscribed
+     */
+    default Future<PullWorkers> pullWorkers(String subject, String durable, int workerCount, Handler<NatsVertxMessage> handler) {
+        return pullWorkers(subject, durable, workerCount, ConsumeOptions.DEFAULT_MESSAGE_COUNT,
+            ConsumeOptions.DEFAULT_EXPIRES_IN_MILLIS, handler);
+    }
+
+    /**
+     * Consume messages continuously from an existing pull consumer as a read stream,
+     * see {@link ConsumerReadStream}. Pulls start once a handler is set.
+     * @param streamName the name of the stream
+     * @param consumerName the name of the consumer
+     * @param options the consume options, batch size and bytes, threshold and expiration of the pulls
+     * @return future of the read stream
+     */
+    Future<ConsumerReadStream> consume(String streamName, String consumerName, ConsumeOptions options);
+
+    /**
+     * Consume messages continuously from an existing pull consumer as a read stream with the default consume options,
+     * see {@link ConsumerReadStream}. Pulls start once a handler is set.
+     * @param streamName the name of the stream
+     * @param consumerName the name of the consumer
+     * @return future of the read stream
+     */
+    default Future<ConsumerReadStream> consume(String streamName, String consumerName) {
+        return consume(streamName, consumerName, ConsumeOptions.DEFAULT_CONSUME_OPTIONS);
+    }
+
+    /**
+     * Drain all the subscriptions of this stream. Pending publishes complete, pull subscriptions drain as in
+     * {@link SubscriptionReadStream#drain(Duration)}, push subscriptions stop delivery and their dispatchers
+     * pass on the messages already received, all within the timeout. The subscriptions are gone afterwards.
+     * @param timeout the max time to wait for each subscription
+     * @return future that completes once drained
+     */
+    Future<Void> drain(Duration timeout);
+
     /**
      * Unsubscribe from the Stream.
      * @param subject Subject to unsubscribe from.
@@ -206,7 +384,8 @@ public interface NatsStream extends WriteStream<Message> {
     }
 
     /**
-     * Prepares an iterator. This uses pullExpiresIn under the covers, and manages all responses.
+     * Prepares an iterator over a fetched batch, hasNext and next never block.
+     * This uses pullExpiresIn under the covers, and manages all responses.
      * The iterator will have no messages if it does not receive the first message within
      * the max wait period. It will stop if the batch is fulfilled or if there are fewer
      * than batch size messages. 408 Status messages are ignored and will not count toward the
@@ -219,7 +398,8 @@ public interface NatsStream extends WriteStream<Message> {
     Future<Iterator<NatsVertxMessage>> iterate(final String subject, final int batchSize, final long maxWaitMillis);
 
     /**
-     * Prepares an iterator. This uses pullExpiresIn under the covers, and manages all responses.
+     * Prepares an iterator over a fetched batch, hasNext and next never block.
+     * This uses pullExpiresIn under the covers, and manages all responses.
      * The iterator will have no messages if it does not receive the first message within
      * the max wait period. It will stop if the batch is fulfilled or if there are fewer
      * than batch size messages. 408 Status messages are ignored and will not count toward the
@@ -232,4 +412,14 @@ public interface NatsStream extends WriteStream<Message> {
     default Future<Iterator<NatsVertxMessage>> iterate(final String subject, final int batchSize, final Duration maxWait) {
         return iterate(subject, batchSize, maxWait.toMillis());
     }
+
+    /**
+     * Pull a batch from the subscription and pass its messages on as they arrive.
+     * See {@link SubscriptionReadStream#iterateStream(int, long)}.
+     * @param subject subject The subject for the subscription.
+     * @param batchSize the batch size
+     * @param maxWaitMillis the maximum time to wait for the batch, in milliseconds
+     * @return the read stream of the messages of the batch
+     */
+    ReadStream<NatsVertxMessage> iterateStream(final String subject, final int batchSize, final long maxWaitMillis);
 }
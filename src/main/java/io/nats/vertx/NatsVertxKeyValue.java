@@ -6,7 +6,12 @@ import io.nats.vertx.impl.NatsImpl;
 import io.vertx.core.Future;
 import io.vertx.core.streams.StreamBase;
 
+import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+
+import static io.nats.client.support.NatsConstants.GREATER_THAN;
 
 /**
  * Provides a Vert.x WriteStream interface with Futures and Promises.
@@ -38,6 +43,49 @@ public interface NatsVertxKeyValue extends StreamBase {
      */
     Future<KeyValueEntry> get(String key, long revision);
 
+    /**
+     * Get the entries for several keys that exist and are live, with as few requests as possible.
+     * The keys are read with batch direct gets, a server that does not support them is asked for
+     * each key separately, all at once.
+     * @param keys the keys
+     * @return the entries by key, in the order of the keys, without the keys not found
+     */
+    Future<Map<String, KeyValueEntry>> getMany(List<String> keys);
+
+    /**
+     * Get the entries for the keys matching a subject-like filter that exist and are live,
+     * for instance "key.*" or "key.&gt;"
+     * @param filter the subject like key filter
+     * @return the entries by key
+     */
+    Future<Map<String, KeyValueEntry>> getMany(String filter);
+
+    /**
+     * Enable a near-cache for the gets of this handle. Entries read by {@link #get(String)} are kept locally,
+     * up to max entries with the least recently used evicted first, and later gets of the key are served
+     * from memory. A watch of the whole bucket updates cached keys on every revision.
+     * @param maxEntries the max number of keys cached
+     * @param ttl the max age of an entry, null or zero for no limit
+     * @return the cache once its watch is running
+     */
+    Future<KeyValueNearCache> nearCache(int maxEntries, Duration ttl);
+
+    /**
+     * Enable a near-cache for the gets of this handle, with no age limit.
+     * @param maxEntries the max number of keys cached
+     * @return the cache once its watch is running
+     */
+    default Future<KeyValueNearCache> nearCache(int maxEntries) {
+        return nearCache(maxEntries, null);
+    }
+
+    /**
+     * Load the whole bucket into memory and keep it current with a watch, for small buckets
+     * that are read far more often than written, such as configuration.
+     * @return the replica once the last entry of every key is loaded
+     */
+    Future<MaterializedKeyValue> materialize();
+
     /**
      * Put a byte[] as the value for a key
      * @param key the key
@@ -198,6 +246,35 @@ public interface NatsVertxKeyValue extends StreamBase {
      */
     Future<List<String>> keys(List<String> filters);
 
+    /**
+     * Get the keys in a bucket as a read stream, emitted as they are read from the server,
+     * for buckets with too many keys to collect in a list.
+     * @return the stream once its consumer is created
+     */
+    default Future<KeyValueReadStream<String>> keysStream() {
+        return keysStream(GREATER_THAN);
+    }
+
+    /**
+     * Get the keys in a bucket filtered by a subject-like string as a read stream,
+     * for instance "key" or "key.foo.*" or "key.&gt;"
+     * @param filter the subject like key filter
+     * @return the stream once its consumer is created
+     */
+    default Future<KeyValueReadStream<String>> keysStream(String filter) {
+        return keysStream(Collections.singletonList(filter), KeyValueReadStream.DEFAULT_MAX_BUFFERED);
+    }
+
+    /**
+     * Get the keys in a bucket filtered by subject-like strings as a read stream.
+     * The stream buffers up to max buffered keys before it holds the delivery.
+     * While it is not paused it fails when no key arrives within the request timeout.
+     * @param filters the subject like key filters
+     * @param maxBuffered the max keys buffered
+     * @return the stream once its consumer is created
+     */
+    Future<KeyValueReadStream<String>> keysStream(List<String> filters, int maxBuffered);
+
     /**
      * Get the history (list of KeyValueEntry) for a key
      * @param key the key
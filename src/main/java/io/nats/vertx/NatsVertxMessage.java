@@ -28,18 +28,13 @@ public interface NatsVertxMessage extends Message{
      * @return Future
      */
     default Future<Void> ackAsync() {
-        // This now returns a future that is truly async by running the code in the vertx thread context.
-        // Ack by default does not block, but does IO so could introduce a wait state.
-        final Promise<Void> promise = context().promise();
-        context().executeBlocking(event -> {
-            try {
-                message().ack();
-                promise.complete();
-            } catch (Throwable e){
-                promise.tryFail(e);
-            }
-        }, false);
-        return promise.future();
+        // The ack is a buffered publish that does not block, it is sent from the calling thread.
+        try {
+            message().ack();
+            return context().succeededFuture();
+        } catch (Throwable e) {
+            return context().failedFuture(e);
+        }
     }
 
     /**
@@ -47,17 +42,12 @@ public interface NatsVertxMessage extends Message{
      * @return Future
      */
     default Future<Void> nakAsync() {
-        final Promise<Void> promise = context().promise();
-        // This now returns a future that is truly async by running the code in the vertx thread context.
-        context().executeBlocking(event -> {
-            try {
-                message().nak();
-                promise.complete();
-            } catch (Throwable e){
-                promise.tryFail(e);
-            }
-        }, false);
-        return promise.future();
+        try {
+            message().nak();
+            return context().succeededFuture();
+        } catch (Throwable e) {
+            return context().failedFuture(e);
+        }
     }
     /**
      * Tell server that we were not able to process the message.
@@ -66,19 +56,12 @@ public interface NatsVertxMessage extends Message{
      * @return Future
      */
     default Future<Void> nakWithDelayAsync(final Duration nakDelay) {
-        // This now returns a future that is truly async by running the code using vertx executeBlocking
-        // which executes with a thread pool separate from the event loop IO context of vert.x.
-        // because we can't block the vert.x IO event loop.
-        final Promise<Void> promise = context().promise();
-        context().executeBlocking(event -> {
-            try {
-                message().nakWithDelay(nakDelay);
-                promise.complete();
-            } catch (Throwable e){
-                promise.tryFail(e);
-            }
-        }, false);
-        return promise.future();
+        try {
+            message().nakWithDelay(nakDelay);
+            return context().succeededFuture();
+        } catch (Throwable e) {
+            return context().failedFuture(e);
+        }
     }
 
     /**
@@ -87,10 +70,9 @@ public interface NatsVertxMessage extends Message{
      * @return Future
      */
     default Future<Void> ackWithDelayAsync(final Duration ackDelay) {
+        // ackSync waits for the server to confirm and keeps the ack state of the message,
+        // so a later ack of the same message is not sent again. It blocks, it runs off the event loop.
         final Promise<Void> promise = context().promise();
-        // This now returns a future that is truly async by running the code using vertx executeBlocking
-        // which executes with a thread pool separate from the event loop IO context of vert.x.
-        // because we can't block the vert.x IO event loop.
         context().executeBlocking(event -> {
             try {
                 message().ackSync(ackDelay);
@@ -222,28 +204,33 @@ public interface NatsVertxMessage extends Message{
     }
 
     default Future<Void> inProgressAsync() {
-        final Promise<Void> promise = context().promise();
-        context().executeBlocking(event -> {
-            try {
-                message().inProgress();
-                promise.complete();
-            } catch (Throwable e){
-                promise.tryFail(e);
-            }
-        }, false);
-        return promise.future();
+        try {
+            message().inProgress();
+            return context().succeededFuture();
+        } catch (Throwable e) {
+            return context().failedFuture(e);
+        }
     }
+
+    /**
+     * Acknowledge the message without a future. The ack is published from the calling thread,
+     * a failure is reported to the exception handler of the context.
+     */
+    default void ackAndForget() {
+        try {
+            message().ack();
+        } catch (Throwable e) {
+            context().reportException(e);
+        }
+    }
+
     default Future<Void> termAsync() {
-        final Promise<Void> promise = context().promise();
-        context().executeBlocking(event -> {
-            try {
-                message().term();
-                promise.complete();
-            } catch (Throwable e){
-                promise.tryFail(e);
-            }
-        }, false);
-        return promise.future();
+        try {
+            message().term();
+            return context().succeededFuture();
+        } catch (Throwable e) {
+            return context().failedFuture(e);
+        }
     }
 
     @Override
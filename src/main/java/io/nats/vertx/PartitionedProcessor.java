@@ -0,0 +1,49 @@
+package io.nats.vertx;
+
+import io.vertx.core.Future;
+
+/**
+ * Concurrent processing of a push consumer partitioned by key. Messages with the same key are processed
+ * one after the other in delivery order, messages with different keys run concurrently on the event loop
+ * contexts of the partitions. Acks follow delivery order: the ack floor only moves past a message once it
+ * and every message delivered before it are processed, so a cumulative consumer, AckPolicy.All,
+ * never acks past unfinished work.
+ */
+public interface PartitionedProcessor {
+
+    /**
+     * The number of partitions, each with its own context.
+     * @return the partition count
+     */
+    int getPartitionCount();
+
+    /**
+     * The stream sequence of the last message the ack floor moved past, 0 if none.
+     * @return the ack floor
+     */
+    long getAckFloor();
+
+    /**
+     * The number of delivered messages the ack floor has not moved past.
+     * @return the pending count
+     */
+    int getPending();
+
+    /**
+     * The number of messages processed.
+     * @return the processed count
+     */
+    long getProcessed();
+
+    /**
+     * The number of messages whose processing failed.
+     * @return the failed count
+     */
+    long getFailed();
+
+    /**
+     * Stop the delivery. The future completes once the work in flight is done and acked.
+     * @return future that completes when the processor is stopped
+     */
+    Future<Void> stop();
+}
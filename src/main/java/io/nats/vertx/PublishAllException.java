@@ -0,0 +1,44 @@
+package io.nats.vertx;
+
+import io.nats.client.api.PublishAck;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Failure of a bulk publish where one or more of the messages could not be published.
+ * The acks of the messages that were stored are still available by index.
+ */
+public class PublishAllException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final List<PublishAck> acks;
+    private final Map<Integer, Throwable> failures;
+
+    /**
+     * Create the exception
+     * @param acks the acks by message index, null where the publish failed
+     * @param failures the failures by message index, sorted by index
+     */
+    public PublishAllException(List<PublishAck> acks, Map<Integer, Throwable> failures) {
+        super(failures.size() + " of " + acks.size() + " publishes failed", failures.values().iterator().next());
+        this.acks = acks;
+        this.failures = failures;
+    }
+
+    /**
+     * The acks by message index, null where the publish failed.
+     * @return the acks
+     */
+    public List<PublishAck> getAcks() {
+        return acks;
+    }
+
+    /**
+     * The failures by message index, sorted by index.
+     * @return the failures
+     */
+    public Map<Integer, Throwable> getFailures() {
+        return failures;
+    }
+}
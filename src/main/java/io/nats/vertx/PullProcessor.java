@@ -0,0 +1,35 @@
+package io.nats.vertx;
+
+import io.vertx.core.Future;
+
+/**
+ * Fetch loop that processes the messages of a pull subscription on worker threads.
+ * Every message is acked once its work finishes, or nak'd if the work throws,
+ * and the next fetch is issued as soon as enough of the work in flight is done.
+ */
+public interface PullProcessor {
+
+    /**
+     * The number of messages whose work is running or waiting for a worker.
+     * @return the messages in flight
+     */
+    int getInFlight();
+
+    /**
+     * The number of messages processed and acked.
+     * @return the processed count
+     */
+    long getProcessed();
+
+    /**
+     * The number of messages whose work failed and that were nak'd.
+     * @return the failed count
+     */
+    long getFailed();
+
+    /**
+     * Stop fetching. The future completes once the work in flight is done.
+     * @return future that completes when the processor is stopped
+     */
+    Future<Void> stop();
+}
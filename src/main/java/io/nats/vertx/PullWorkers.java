@@ -0,0 +1,41 @@
+package io.nats.vertx;
+
+import io.vertx.core.Future;
+
+/**
+ * Pull subscriptions on one durable consumer, each bound to its own event loop context with its own fetch loop.
+ * The metrics are shared by all the workers.
+ */
+public interface PullWorkers {
+
+    /**
+     * The number of workers.
+     * @return the worker count
+     */
+    int getWorkerCount();
+
+    /**
+     * The number of fetches completed by all the workers.
+     * @return the fetch count
+     */
+    long getFetches();
+
+    /**
+     * The number of fetches that returned no message.
+     * @return the empty fetch count
+     */
+    long getEmptyFetches();
+
+    /**
+     * The number of messages handled by all the workers.
+     * @return the message count
+     */
+    long getMessages();
+
+    /**
+     * Stop the fetch loops and unsubscribe the workers. Messages that were pulled but not handled
+     * are redelivered by the server after the ack wait.
+     * @return future that completes once all the workers are unsubscribed
+     */
+    Future<Void> stop();
+}
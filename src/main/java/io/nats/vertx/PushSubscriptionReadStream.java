@@ -0,0 +1,57 @@
+package io.nats.vertx;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.streams.ReadStream;
+
+/**
+ * Push subscription as a read stream with back pressure. When the stream is paused, or the handler is not
+ * keeping up with fetch demand, the stream buffers up to its max and then stops draining the dispatcher.
+ * The held messages include the flow control requests of the server, so with flow control on the consumer
+ * the server stops sending until the stream is drained and delivery resumes.
+ * Messages are not acked automatically.
+ */
+public interface PushSubscriptionReadStream extends ReadStream<NatsVertxMessage> {
+
+    /**
+     * The default number of messages buffered before delivery is paused.
+     */
+    int DEFAULT_MAX_BUFFERED = 1000;
+
+    /**
+     * The subject of the subscription.
+     * @return the subject
+     */
+    String getSubject();
+
+    /**
+     * Whether the dispatcher currently holds the deliveries.
+     * @return true if delivery is paused
+     */
+    boolean isDeliveryPaused();
+
+    /**
+     * Unsubscribe and end the stream. Held and buffered messages are dropped,
+     * the server redelivers them after the ack wait.
+     * @return future that completes once unsubscribed
+     */
+    Future<Void> unsubscribe();
+
+    @Override
+    PushSubscriptionReadStream exceptionHandler(Handler<Throwable> handler);
+
+    @Override
+    PushSubscriptionReadStream handler(Handler<NatsVertxMessage> handler);
+
+    @Override
+    PushSubscriptionReadStream pause();
+
+    @Override
+    PushSubscriptionReadStream resume();
+
+    @Override
+    PushSubscriptionReadStream fetch(long amount);
+
+    @Override
+    PushSubscriptionReadStream endHandler(Handler<Void> endHandler);
+}
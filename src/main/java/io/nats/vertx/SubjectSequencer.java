@@ -0,0 +1,61 @@
+package io.nats.vertx;
+
+import io.nats.client.impl.Headers;
+import io.vertx.core.Future;
+
+/**
+ * Ordered writer for a single subject, for instance the events of one event sourced aggregate.
+ * Every append is conditional on the last sequence of the subject, the expected last subject sequence
+ * is computed from the append before it, so appends are stored in the order they are made and only
+ * if nobody else wrote to the subject in between.
+ *
+ * <p>Appends made while a previous append is waiting for its ack are queued. With atomic batches the
+ * queued appends are sent together as one JetStream atomic batch, conditional on the last sequence,
+ * which pipelines many appends per round trip. Without atomic batches appends are sent one at a time.</p>
+ *
+ * <p>When an append fails, for instance because another writer changed the subject, that append and every
+ * append queued behind it fail with the same cause and the sequencer rejects appends
+ * until it is {@link #reset(long) reset} with the current last sequence of the subject.</p>
+ */
+public interface SubjectSequencer {
+
+    /**
+     * The subject this sequencer writes to.
+     * @return the subject
+     */
+    String getSubject();
+
+    /**
+     * The stream sequence of the last message of the subject known to this sequencer.
+     * @return the last sequence
+     */
+    long getLastSequence();
+
+    /**
+     * Whether an append failed and the sequencer needs a reset.
+     * @return true if failed
+     */
+    boolean isFailed();
+
+    /**
+     * Append a message to the subject.
+     * @param body the message body
+     * @return future of the stream sequence of the appended message
+     */
+    Future<Long> append(byte[] body);
+
+    /**
+     * Append a message to the subject.
+     * @param headers optional headers to publish with the message
+     * @param body the message body
+     * @return future of the stream sequence of the appended message
+     */
+    Future<Long> append(Headers headers, byte[] body);
+
+    /**
+     * Clear a failure and continue from the given last sequence of the subject.
+     * @param lastSequence the current last sequence of the subject, 0 if the subject has no messages
+     * @throws IllegalStateException if appends are still pending
+     */
+    void reset(long lastSequence);
+}
@@ -1,6 +1,8 @@
 package io.nats.vertx;
 
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.streams.ReadStream;
 
 import java.time.Duration;
 import java.util.Iterator;
@@ -8,6 +10,55 @@ import java.util.List;
 
 public interface SubscriptionReadStream {
 
+    /**
+     * Batch the acks of this subscription. Acks made with ackAsync are collected and sent together
+     * once maxAcks are collected or maxDelay passed since the first one. For a consumer with AckPolicy.All
+     * only one cumulative ack is sent, for the last message of the contiguous processed messages.
+     * The ack future completes once the ack that covers the message is sent.
+     * @param maxAcks the number of acks that triggers sending, 1 or less turns batching off
+     * @param maxDelay the max time an ack is held
+     * @return this stream
+     */
+    SubscriptionReadStream ackBatching(int maxAcks, Duration maxDelay);
+
+    /**
+     * Sample the metrics of this subscription at the interval, see {@link ConsumerMetrics}.
+     * The metrics come from the metadata of the delivered messages, no request goes to the server.
+     * @param interval the sample interval
+     * @param handler the metrics handler, null turns sampling off
+     * @return this stream
+     */
+    SubscriptionReadStream metrics(Duration interval, Handler<ConsumerMetrics> handler);
+
+    /**
+     * Turn on prefetch. Once a fetch completes, the next batch of the same size is pulled right away
+     * and buffered, so the following fetch is served from the buffer without waiting for a round trip.
+     * The buffer holds at most maxMessages messages and, if maxBytes is not 0, about maxBytes bytes.
+     * The ack wait of a prefetched message runs while it is buffered.
+     * @param maxMessages the max number of messages to buffer ahead, 0 turns prefetch off
+     * @param maxBytes the max number of bytes to buffer ahead, 0 for no byte budget
+     * @return this stream
+     */
+    SubscriptionReadStream prefetch(int maxMessages, long maxBytes);
+
+    /**
+     * Turn on adaptive batch sizing for {@link #fetchAdaptive(long)}. The time from handing out a batch
+     * to the next adaptive fetch is taken as its processing time, the pull is sized to keep about targetWork
+     * of messages buffered plus enough to cover the pull latency. The size stays within min and max batch,
+     * within what can be processed in half the ack wait of the consumer and within its max ack pending.
+     * @param targetWork the amount of work to keep buffered
+     * @param minBatch the min batch size, also the size of the first pull
+     * @param maxBatch the max batch size
+     * @return this stream
+     */
+    SubscriptionReadStream adaptiveBatching(Duration targetWork, int minBatch, int maxBatch);
+
+    /**
+     * The batch size the next adaptive fetch pulls.
+     * @return the batch size, 0 if adaptive batching is not on
+     */
+    int getAdaptiveBatchSize();
+
     /**
      * Retrieve a message from the subscription.
      * @param batchSize batchSize The batch size, only use if you passed the right publish options.
@@ -30,7 +81,8 @@ public interface SubscriptionReadStream {
     }
 
     /**
-     * Prepares an iterator. This uses pullExpiresIn under the covers, and manages all responses.
+     * Prepares an iterator over a fetched batch, hasNext and next never block.
+     * This uses pullExpiresIn under the covers, and manages all responses.
      * The iterator will have no messages if it does not receive the first message within
      * the max wait period. It will stop if the batch is fulfilled or if there are fewer
      * than batch size messages. 408 Status messages are ignored and will not count toward the
@@ -42,7 +94,8 @@ public interface SubscriptionReadStream {
     Future<Iterator<NatsVertxMessage>> iterate( final int batchSize, final long maxWaitMillis);
 
     /**
-     * Prepares an iterator. This uses pullExpiresIn under the covers, and manages all responses.
+     * Prepares an iterator over a fetched batch, hasNext and next never block.
+     * This uses pullExpiresIn under the covers, and manages all responses.
      * The iterator will have no messages if it does not receive the first message within
      * the max wait period. It will stop if the batch is fulfilled or if there are fewer
      * than batch size messages. 408 Status messages are ignored and will not count toward the
@@ -56,11 +109,71 @@ public interface SubscriptionReadStream {
     }
 
     /**
-     * Unsubscribe this subscription and stop listening for messages.
-     *
-     * <p>Stops messages to the subscription locally and notifies the server.
-     *
-     * @throws IllegalStateException if the subscription belongs to a dispatcher, or is not active
+     * Fetch a batch sized by the adaptive batch sizing, see {@link #adaptiveBatching(Duration, int, int)}.
+     * While the messages in flight fill the max ack pending of the consumer no pull is sent,
+     * the fetch waits for messages to be settled and completes with no messages if none are within max wait.
+     * @param maxWaitMillis the maximum time to wait for the batch, in milliseconds
+     * @return future of the list of messages
+     */
+    Future<List<NatsVertxMessage>> fetchAdaptive(final long maxWaitMillis);
+
+    /**
+     * Fetch a batch sized by the adaptive batch sizing, see {@link #adaptiveBatching(Duration, int, int)}.
+     * @param maxWait the maximum time to wait for the batch
+     * @return future of the list of messages
+     */
+    default Future<List<NatsVertxMessage>> fetchAdaptive(final Duration maxWait) {
+        return fetchAdaptive(maxWait.toMillis());
+    }
+
+    /**
+     * Pull a batch and pass its messages on as they arrive. The returned read stream ends once the batch
+     * is filled or the max wait passed, it never blocks the event loop and supports pause, resume and fetch.
+     * @param batchSize the batch size
+     * @param maxWaitMillis the maximum time to wait for the batch, in milliseconds
+     * @return the read stream of the messages of the batch
+     */
+    ReadStream<NatsVertxMessage> iterateStream(final int batchSize, final long maxWaitMillis);
+
+    /**
+     * Pull a batch and pass its messages on as they arrive. The returned read stream ends once the batch
+     * is filled or the max wait passed, it never blocks the event loop and supports pause, resume and fetch.
+     * @param batchSize the batch size
+     * @param maxWait the maximum time to wait for the batch
+     * @return the read stream of the messages of the batch
+     */
+    default ReadStream<NatsVertxMessage> iterateStream(final int batchSize, final Duration maxWait) {
+        return iterateStream(batchSize, maxWait.toMillis());
+    }
+
+    /**
+     * Process the messages of this subscription on worker threads. Batches are fetched and their messages
+     * handed to a worker pool of the given parallelism, each message is acked when its work returns
+     * and nak'd when its work throws. At most a batch of messages is in flight, the next fetch is issued
+     * for the free room once the refetch ratio of the batch is done, so the workers do not wait for a round trip.
+     * @param batchSize the max number of messages in flight
+     * @param maxWaitMillis the maximum time a fetch waits, in milliseconds
+     * @param parallelism the number of worker threads
+     * @param refetchRatio the part of the batch that must be done before the next fetch, 0 to 1
+     * @param work the work, runs on a worker thread
+     * @return the processor, stop it to stop fetching
+     */
+    PullProcessor process(int batchSize, long maxWaitMillis, int parallelism, double refetchRatio, Handler<NatsVertxMessage> work);
+
+    /**
+     * Unsubscribe this subscription and stop listening for messages, a drain without waiting.
+     * Batched acks are sent and buffered messages are nak'd.
+     * @return future that completes once unsubscribed
      */
     Future<Void> unsubscribeAsync();
+
+    /**
+     * Drain this subscription. New fetches fail, outstanding fetches complete, and the drain waits up to the timeout
+     * for the handed out messages to be acked, nak'd or terminated while it flushes batched acks.
+     * Prefetched messages that were never handed out are nak'd so the server redelivers them right away,
+     * then the subscription is unsubscribed.
+     * @param timeout the max time to wait for the handed out messages
+     * @return future that completes once unsubscribed
+     */
+    Future<Void> drain(Duration timeout);
 }
@@ -0,0 +1,208 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.Message;
+import io.nats.client.impl.NatsJetStreamMetaData;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.impl.ContextInternal;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the acks of a subscription and sends them together once max acks are collected
+ * or max delay passed since the first one, in one burst from the flushing thread.
+ * For a cumulative consumer, AckPolicy.All, the deliveries are tracked in order and only
+ * the ack of the last message of the contiguous processed prefix is sent, it acks all the messages before it.
+ * A delivery that is never settled through the batcher does not hold the prefix forever: once the ack wait passed
+ * or its stream sequence is delivered again, the server redelivers it anyway and the prefix moves past it.
+ * Ack futures complete once their ack, or the cumulative ack covering it, is sent.
+ */
+public class AckBatcher {
+    private final ContextInternal context;
+    private final int maxAcks;
+    private final long maxDelayMillis;
+    private final boolean cumulative;
+    private final long ackWaitNanos;
+    private final ArrayDeque<Delivery> deliveries = new ArrayDeque<>();
+    private final Map<Message, Delivery> tracked = new IdentityHashMap<>();
+    private final Map<Long, Delivery> bySequence = new HashMap<>();
+    private List<PendingAck> pending = new ArrayList<>();
+    private int processed;
+    private long timerId = -1;
+
+    static class PendingAck {
+        final Message message;
+        final List<Promise<Void>> promises;
+
+        PendingAck(Message message, List<Promise<Void>> promises) {
+            this.message = message;
+            this.promises = promises;
+        }
+    }
+
+    static class Delivery {
+        final Message message;
+        final long sequence;
+        final long deliveredAt = System.nanoTime();
+        boolean done;
+        Promise<Void> promise;
+
+        Delivery(Message message) {
+            this.message = message;
+            final NatsJetStreamMetaData metaData = message.metaData();
+            this.sequence = metaData == null ? 0 : metaData.streamSequence();
+        }
+    }
+
+    /**
+     * Create a batcher
+     * @param context the context to send from
+     * @param maxAcks the number of acks that triggers sending
+     * @param maxDelay the max time an ack is held
+     * @param cumulative whether the consumer acks cumulatively, AckPolicy.All
+     */
+    public AckBatcher(ContextInternal context, int maxAcks, Duration maxDelay, boolean cumulative) {
+        this(context, maxAcks, maxDelay, cumulative, null);
+    }
+
+    /**
+     * Create a batcher
+     * @param context the context to send from
+     * @param maxAcks the number of acks that triggers sending
+     * @param maxDelay the max time an ack is held
+     * @param cumulative whether the consumer acks cumulatively, AckPolicy.All
+     * @param ackWait the ack wait of the consumer, null for the server default
+     */
+    public AckBatcher(ContextInternal context, int maxAcks, Duration maxDelay, boolean cumulative, Duration ackWait) {
+        this.context = context;
+        this.maxAcks = Math.max(1, maxAcks);
+        this.maxDelayMillis = Math.max(1, maxDelay.toMillis());
+        this.cumulative = cumulative;
+        this.ackWaitNanos = (ackWait == null ? Duration.ofSeconds(30) : ackWait).toNanos();
+    }
+
+    public boolean isCumulative() {
+        return cumulative;
+    }
+
+    /**
+     * Track a delivered message, only needed for cumulative acks.
+     * @param message the message
+     */
+    public synchronized void delivered(Message message) {
+        if (cumulative) {
+            final Delivery delivery = new Delivery(message);
+            if (delivery.sequence > 0) {
+                final Delivery previous = bySequence.put(delivery.sequence, delivery);
+                if (previous != null) {
+                    // redelivered, the earlier delivery no longer holds the prefix
+                    previous.done = true;
+                }
+            }
+            deliveries.add(delivery);
+            tracked.put(message, delivery);
+        }
+    }
+
+    /**
+     * Queue the ack of a message.
+     * @param message the message
+     * @return future that completes once the ack is sent
+     */
+    public Future<Void> ack(Message message) {
+        final Promise<Void> promise = context.promise();
+        boolean flush;
+        synchronized (this) {
+            final Delivery delivery = tracked.get(message);
+            if (delivery == null) {
+                pending.add(new PendingAck(message, Collections.singletonList(promise)));
+            }
+            else {
+                delivery.done = true;
+                delivery.promise = promise;
+            }
+            flush = ++processed >= maxAcks;
+            if (!flush && timerId == -1) {
+                timerId = context.owner().setTimer(maxDelayMillis, id -> {
+                    synchronized (this) {
+                        timerId = -1;
+                    }
+                    flush();
+                });
+            }
+        }
+        if (flush) {
+            flush();
+        }
+        return promise.future();
+    }
+
+    /**
+     * Mark a tracked message as settled without an ack, for instance after a nak or term,
+     * so it does not hold back the cumulative ack.
+     * @param message the message
+     */
+    public synchronized void settled(Message message) {
+        final Delivery delivery = tracked.get(message);
+        if (delivery != null) {
+            delivery.done = true;
+        }
+    }
+
+    /**
+     * Send the acks collected so far.
+     */
+    public void flush() {
+        final List<PendingAck> acks;
+        synchronized (this) {
+            if (timerId != -1) {
+                context.owner().cancelTimer(timerId);
+                timerId = -1;
+            }
+            processed = 0;
+            acks = pending;
+            pending = new ArrayList<>();
+            if (cumulative) {
+                // settled but not acked messages are passed over, the ack goes to the last acked one,
+                // a delivery past the ack wait is passed over too, the server redelivers it
+                final long expired = System.nanoTime() - ackWaitNanos;
+                Message last = null;
+                final List<Promise<Void>> covered = new ArrayList<>();
+                while (!deliveries.isEmpty() && (deliveries.peek().done || deliveries.peek().deliveredAt - expired <= 0)) {
+                    final Delivery delivery = deliveries.poll();
+                    tracked.remove(delivery.message);
+                    bySequence.remove(delivery.sequence, delivery);
+                    if (delivery.promise != null) {
+                        last = delivery.message;
+                        covered.add(delivery.promise);
+                    }
+                }
+                if (last != null) {
+                    acks.add(new PendingAck(last, covered));
+                }
+            }
+        }
+        if (!acks.isEmpty()) {
+            send(acks);
+        }
+    }
+
+    private void send(List<PendingAck> acks) {
+        // acks are buffered publishes, the burst goes out from the flushing thread
+        for (PendingAck pa : acks) {
+            try {
+                pa.message.ack();
+                pa.promises.forEach(Promise::tryComplete);
+            } catch (Throwable e) {
+                pa.promises.forEach(p -> p.tryFail(e));
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package io.nats.vertx.impl;
+
+import java.time.Duration;
+
+/**
+ * Sizes the pulls of an adaptive fetch loop. The time from handing out a batch to the next fetch is taken
+ * as the processing time of the batch, the time to fill a batch as the pull latency, both smoothed.
+ * The next pull asks for enough messages to cover the target work plus the pull latency, so the consumer
+ * does not wait for the round trip, but never more than can be processed within half the ack wait
+ * and never more than the max ack pending of the consumer leaves room for, next to the messages still in flight.
+ */
+public class AdaptiveBatchSizer {
+    private static final double SMOOTHING = 0.3;
+
+    private final long targetWorkNanos;
+    private final int minBatch;
+    private final int maxBatch;
+    private long ackWaitNanos = Duration.ofSeconds(30).toNanos();
+    private long maxAckPending = Long.MAX_VALUE;
+    private double perMessageNanos;
+    private double pullLatencyNanos;
+    private long handedOutNanos;
+    private int handedOut;
+    private int batchSize;
+
+    /**
+     * Create a sizer, it starts at the min batch size.
+     * @param targetWork the amount of work to keep buffered
+     * @param minBatch the min batch size
+     * @param maxBatch the max batch size
+     */
+    public AdaptiveBatchSizer(Duration targetWork, int minBatch, int maxBatch) {
+        if (minBatch < 1 || maxBatch < minBatch) {
+            throw new IllegalArgumentException("Batch sizes must be at least 1 and min not above max");
+        }
+        this.targetWorkNanos = targetWork.toNanos();
+        this.minBatch = minBatch;
+        this.maxBatch = maxBatch;
+        this.batchSize = minBatch;
+    }
+
+    /**
+     * Set the limits of the consumer.
+     * @param ackWait the ack wait of the consumer, null or non positive keeps the server default of 30 seconds
+     * @param maxAckPending the max ack pending of the consumer, non positive for no limit
+     */
+    public synchronized void limits(Duration ackWait, long maxAckPending) {
+        if (ackWait != null && !ackWait.isNegative() && !ackWait.isZero()) {
+            this.ackWaitNanos = ackWait.toNanos();
+        }
+        this.maxAckPending = maxAckPending > 0 ? maxAckPending : Long.MAX_VALUE;
+    }
+
+    public synchronized int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Called when the next fetch starts, records the processing time of the batch handed out before it.
+     * @param now the time in nanos
+     * @param inFlight the messages delivered and not yet settled, they count against the max ack pending
+     * @return the size of the next pull, 0 when max ack pending leaves no room for a pull
+     */
+    public synchronized int begin(long now, long inFlight) {
+        if (handedOut > 0) {
+            perMessageNanos = smooth(perMessageNanos, (double) (now - handedOutNanos) / handedOut);
+            handedOut = 0;
+        }
+        final long ackPendingRoom = maxAckPending == Long.MAX_VALUE ? Long.MAX_VALUE : maxAckPending - inFlight;
+        if (ackPendingRoom <= 0) {
+            // the server does not deliver past max ack pending, a pull would not be filled
+            return 0;
+        }
+        if (perMessageNanos > 0) {
+            final double wanted = (targetWorkNanos + pullLatencyNanos) / perMessageNanos;
+            final double ackWaitCap = (ackWaitNanos / 2.0) / perMessageNanos;
+            final long cap = Math.min(maxBatch, Math.min(ackPendingRoom, (long) Math.max(1, ackWaitCap)));
+            batchSize = (int) Math.max(1, Math.min(cap, Math.max(minBatch, (long) Math.ceil(wanted))));
+        }
+        return (int) Math.min(batchSize, ackPendingRoom);
+    }
+
+    /**
+     * Called when a fetch completes and its batch is handed out.
+     * @param requested the size of the pull
+     * @param received the number of messages received
+     * @param started the time the fetch started in nanos
+     * @param now the time in nanos
+     */
+    public synchronized void fetched(int requested, int received, long started, long now) {
+        // a batch that was not filled waited for messages, not for the round trip
+        if (received > 0 && received == requested) {
+            pullLatencyNanos = smooth(pullLatencyNanos, now - started);
+        }
+        handedOut = received;
+        handedOutNanos = now;
+    }
+
+    private static double smooth(double average, double sample) {
+        return average == 0 ? sample : average + SMOOTHING * (sample - average);
+    }
+}
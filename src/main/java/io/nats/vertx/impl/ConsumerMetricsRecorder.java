@@ -0,0 +1,107 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.Message;
+import io.nats.client.impl.NatsJetStreamMetaData;
+import io.nats.vertx.ConsumerMetrics;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import static io.nats.vertx.ConsumerMetrics.PROCESSING_TIME_BUCKETS_MILLIS;
+
+/**
+ * Records the metrics of a subscription from the metadata of its messages. Delivered messages are kept
+ * until their wrapper reports them acked, nak'd or terminated, or a sample finds them older than the ack wait,
+ * which gives the ack pending count without asking the server.
+ */
+public class ConsumerMetricsRecorder {
+    static final int MAX_TRACKED = 100_000;
+
+    private final String subject;
+    private final long ackWaitNanos;
+    private final LinkedHashMap<Message, Long> unsettled = new LinkedHashMap<>();
+    private long pending;
+    private long delivered;
+    private long redelivered;
+    private long delaySumMillis;
+    private long delayCount;
+    private long maxDelayMillis;
+    private long[] processingTimeCounts = new long[PROCESSING_TIME_BUCKETS_MILLIS.length];
+
+    /**
+     * Create a recorder
+     * @param subject the subject of the subscription
+     * @param ackWait the ack wait of the consumer, null for the server default
+     */
+    public ConsumerMetricsRecorder(String subject, Duration ackWait) {
+        this.subject = subject;
+        this.ackWaitNanos = (ackWait == null ? Duration.ofSeconds(30) : ackWait).toNanos();
+    }
+
+    /**
+     * Record a delivered message.
+     * @param message the message
+     */
+    public void delivered(Message message) {
+        final long now = System.nanoTime();
+        final long nowMillis = System.currentTimeMillis();
+        final NatsJetStreamMetaData meta = message.isJetStream() ? message.metaData() : null;
+        synchronized (this) {
+            delivered++;
+            if (meta != null) {
+                pending = meta.pendingCount();
+                if (meta.deliveredCount() > 1) {
+                    redelivered++;
+                }
+                final long delay = Math.max(0, nowMillis - meta.timestamp().toInstant().toEpochMilli());
+                delaySumMillis += delay;
+                delayCount++;
+                maxDelayMillis = Math.max(maxDelayMillis, delay);
+            }
+            if (unsettled.size() == MAX_TRACKED) {
+                final Iterator<Long> oldest = unsettled.values().iterator();
+                oldest.next();
+                oldest.remove();
+            }
+            unsettled.put(message, now);
+        }
+    }
+
+    /**
+     * Record that a message was acked, nak'd or terminated, it no longer counts as ack pending.
+     * @param message the message
+     */
+    public synchronized void settled(Message message) {
+        unsettled.remove(message);
+    }
+
+    /**
+     * Record the processing time of a message.
+     * @param nanos the processing time in nanos
+     */
+    public synchronized void processed(long nanos) {
+        final long millis = nanos / 1_000_000;
+        int bucket = 0;
+        while (millis >= PROCESSING_TIME_BUCKETS_MILLIS[bucket] && bucket < PROCESSING_TIME_BUCKETS_MILLIS.length - 1) {
+            bucket++;
+        }
+        processingTimeCounts[bucket]++;
+    }
+
+    /**
+     * Take a sample, the interval values start over.
+     * @return the metrics
+     */
+    public synchronized ConsumerMetrics sample() {
+        final long expired = System.nanoTime() - ackWaitNanos;
+        unsettled.values().removeIf(nanos -> nanos < expired);
+        final ConsumerMetrics metrics = new ConsumerMetrics(subject, pending, unsettled.size(), delivered, redelivered,
+            delayCount == 0 ? 0 : delaySumMillis / delayCount, maxDelayMillis, processingTimeCounts);
+        delaySumMillis = 0;
+        delayCount = 0;
+        maxDelayMillis = 0;
+        processingTimeCounts = new long[PROCESSING_TIME_BUCKETS_MILLIS.length];
+        return metrics;
+    }
+}
@@ -0,0 +1,263 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.ConsumeOptions;
+import io.nats.client.Connection;
+import io.nats.client.ConsumerContext;
+import io.nats.client.Dispatcher;
+import io.nats.client.Message;
+import io.nats.client.MessageConsumer;
+import io.nats.client.api.AckPolicy;
+import io.nats.client.api.ConsumerInfo;
+import io.nats.vertx.ConsumerReadStream;
+import io.nats.vertx.NatsVertxMessage;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.impl.ContextInternal;
+import io.vertx.core.streams.impl.InboundBuffer;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Consumer read stream over the simplified consumer api, see {@link ConsumerReadStream}.
+ * Messages from the dispatcher are moved to the context and written to an inbound buffer
+ * that holds up to a batch of messages. When the buffer is full the message consumer is stopped,
+ * which lets the outstanding pull finish without issuing new ones, and once the buffer is drained
+ * and the stopped consumer has finished, a new message consumer is started. Only one message consumer
+ * runs at a time. A drain stops the message consumer, lets its outstanding pull finish and the buffer be handled,
+ * then stops the stream.
+ */
+public class ConsumerReadStreamImpl implements ConsumerReadStream, Drainable {
+    static final long FINISH_CHECK_MILLIS = 10;
+
+    private final ContextInternal context;
+    private final Connection conn;
+    private final String streamName;
+    private final ConsumerContext consumerContext;
+    private final ConsumeOptions options;
+    private final AtomicReference<Handler<Throwable>> exceptionHandler;
+    private final InboundBuffer<NatsVertxMessage> buffer;
+    private final Dispatcher dispatcher;
+    private Handler<Throwable> streamExceptionHandler;
+    private Handler<Void> endHandler;
+    private MessageConsumer consumer;
+    private boolean starting;
+    private boolean stopped;
+    private boolean draining;
+    private long finishTimerId = -1;
+    private volatile AckBatcher ackBatcher;
+
+    public ConsumerReadStreamImpl(ContextInternal context,
+                                  Connection conn,
+                                  String streamName,
+                                  ConsumerContext consumerContext,
+                                  ConsumeOptions options,
+                                  AtomicReference<Handler<Throwable>> exceptionHandler) {
+        this.context = context;
+        this.conn = conn;
+        this.streamName = streamName;
+        this.consumerContext = consumerContext;
+        this.options = options;
+        this.exceptionHandler = exceptionHandler;
+        this.buffer = new InboundBuffer<>(context, options.getBatchSize());
+        this.buffer.drainHandler(v -> startConsuming());
+        this.dispatcher = conn.createDispatcher();
+    }
+
+    @Override
+    public String getStreamName() {
+        return streamName;
+    }
+
+    @Override
+    public String getConsumerName() {
+        return consumerContext.getConsumerName();
+    }
+
+    @Override
+    public boolean isConsuming() {
+        final MessageConsumer mc = consumer;
+        return mc != null && !mc.isStopped();
+    }
+
+    @Override
+    public ConsumerReadStream ackBatching(int maxAcks, Duration maxDelay) {
+        final ConsumerInfo ci = consumerContext.getCachedConsumerInfo();
+        final boolean cumulative = ci != null && ci.getConsumerConfiguration().getAckPolicy() == AckPolicy.All;
+        ackBatcher = maxAcks <= 1 ? null : new AckBatcher(context, maxAcks, maxDelay, cumulative);
+        return this;
+    }
+
+    @Override
+    public ConsumerReadStream exceptionHandler(Handler<Throwable> handler) {
+        this.streamExceptionHandler = handler;
+        buffer.exceptionHandler(handler);
+        return this;
+    }
+
+    @Override
+    public ConsumerReadStream handler(Handler<NatsVertxMessage> handler) {
+        buffer.handler(handler);
+        if (handler != null) {
+            startConsuming();
+        }
+        return this;
+    }
+
+    @Override
+    public ConsumerReadStream pause() {
+        buffer.pause();
+        return this;
+    }
+
+    @Override
+    public ConsumerReadStream resume() {
+        buffer.resume();
+        return this;
+    }
+
+    @Override
+    public ConsumerReadStream fetch(long amount) {
+        buffer.fetch(amount);
+        return this;
+    }
+
+    @Override
+    public ConsumerReadStream endHandler(Handler<Void> endHandler) {
+        this.endHandler = endHandler;
+        return this;
+    }
+
+    @Override
+    public Future<Void> stop() {
+        stopped = true;
+        if (finishTimerId != -1) {
+            context.owner().cancelTimer(finishTimerId);
+            finishTimerId = -1;
+        }
+        buffer.clear();
+        final AckBatcher batcher = ackBatcher;
+        if (batcher != null) {
+            batcher.flush();
+        }
+        final MessageConsumer mc = consumer;
+        consumer = null;
+        final Future<Void> future = context.executeBlocking(() -> {
+            if (mc != null) {
+                mc.close();
+            }
+            conn.closeDispatcher(dispatcher);
+            return null;
+        }, false);
+        return future.onComplete(ar -> {
+            if (ar.failed()) {
+                handleException(ar.cause());
+            }
+            final Handler<Void> handler = endHandler;
+            if (handler != null) {
+                handler.handle(null);
+            }
+        });
+    }
+
+    @Override
+    public Future<Void> drain(Duration timeout) {
+        final Promise<Void> promise = context.promise();
+        context.runOnContext(v -> {
+            if (stopped) {
+                promise.complete();
+                return;
+            }
+            draining = true;
+            final MessageConsumer mc = consumer;
+            if (mc != null) {
+                mc.stop();
+            }
+            awaitDrained(System.nanoTime() + timeout.toNanos(), promise);
+        });
+        return promise.future();
+    }
+
+    /**
+     * Waits until the stopped message consumer has finished and the buffer is handled or the deadline passed, then stops.
+     */
+    private void awaitDrained(long deadline, Promise<Void> promise) {
+        final MessageConsumer mc = consumer;
+        final boolean idle = !starting && (mc == null || mc.isFinished()) && buffer.isEmpty();
+        if (stopped) {
+            promise.complete();
+        }
+        else if (idle || System.nanoTime() - deadline >= 0) {
+            stop().onComplete(promise);
+        }
+        else {
+            context.owner().setTimer(FINISH_CHECK_MILLIS, id -> context.runOnContext(v -> awaitDrained(deadline, promise)));
+        }
+    }
+
+    private void startConsuming() {
+        if (stopped || draining || starting || isConsuming() || finishTimerId != -1) {
+            return;
+        }
+        final MessageConsumer previous = consumer;
+        if (previous != null && !previous.isFinished()) {
+            // the stopped consumer still has a pull outstanding whose messages keep coming, it closes once they are in
+            finishTimerId = context.owner().setTimer(FINISH_CHECK_MILLIS, id -> context.runOnContext(v -> {
+                finishTimerId = -1;
+                // a full buffer starts it again from its drain handler
+                if (buffer.isWritable()) {
+                    startConsuming();
+                }
+            }));
+            return;
+        }
+        starting = true;
+        context.<MessageConsumer>executeBlocking(() -> consumerContext.consume(options, dispatcher, this::onMessage), false)
+            .onComplete(ar -> {
+                starting = false;
+                if (ar.failed()) {
+                    handleException(ar.cause());
+                }
+                else if (stopped) {
+                    ar.result().stop();
+                }
+                else if (draining) {
+                    consumer = ar.result();
+                    consumer.stop();
+                }
+                else {
+                    consumer = ar.result();
+                    if (!buffer.isWritable()) {
+                        consumer.stop();
+                    }
+                }
+            });
+    }
+
+    private void onMessage(Message message) {
+        context.runOnContext(v -> {
+            if (stopped) {
+                return;
+            }
+            if (!buffer.write(new NatsVertxMessageImpl(message, context, ackBatcher))) {
+                // a batch is buffered, let the current pull finish without issuing the next one
+                final MessageConsumer mc = consumer;
+                if (mc != null) {
+                    mc.stop();
+                }
+            }
+        });
+    }
+
+    private void handleException(Throwable t) {
+        final Handler<Throwable> handler = streamExceptionHandler;
+        if (handler != null) {
+            handler.handle(t);
+        }
+        final Handler<Throwable> clientHandler = exceptionHandler.get();
+        if (clientHandler != null) {
+            clientHandler.handle(t);
+        }
+    }
+}
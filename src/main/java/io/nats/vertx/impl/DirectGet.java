@@ -0,0 +1,180 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.Message;
+import io.nats.client.JetStreamApiException;
+import io.nats.client.JetStreamStatusException;
+import io.nats.client.api.Error;
+import io.nats.client.api.MessageGetRequest;
+import io.nats.client.api.MessageInfo;
+import io.nats.client.support.NatsRequestCompletableFuture;
+import io.nats.client.support.Status;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.impl.ContextInternal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+import static io.nats.client.support.JsonUtils.*;
+import static io.nats.client.support.NatsJetStreamConstants.JSAPI_DIRECT_GET;
+import static io.nats.client.support.NatsJetStreamConstants.JSAPI_DIRECT_GET_LAST;
+
+/**
+ * Direct get requests to a stream that allows direct access, sent without blocking a thread.
+ * Any replica of the stream, or a mirror that allows direct access, can answer them.
+ * A single get is a plain request. A batch request names several subjects with multi_last and the server answers with one message
+ * per subject that has one, followed by an end of batch status. The replies arrive on an inbox
+ * subscribed on a dispatcher of its own, created on the calling context and closed once the batch is in.
+ */
+public class DirectGet {
+    private static final int NOT_FOUND_CODE = 404;
+    private static final int NO_RESPONDERS_CODE = 503;
+
+    private final ContextInternal context;
+    private final Connection conn;
+    private final String streamName;
+    private final String apiPrefix;
+    private final String subject;
+    private final Duration timeout;
+    private final long timeoutMillis;
+
+    /**
+     * Create a direct getter for a stream
+     * @param context the context the futures complete on
+     * @param conn the connection
+     * @param apiPrefix the JetStream api prefix, for instance "$JS.API."
+     * @param streamName the stream name
+     * @param timeout the time to wait for the last reply
+     */
+    public DirectGet(ContextInternal context, Connection conn, String apiPrefix, String streamName, Duration timeout) {
+        this.context = context;
+        this.conn = conn;
+        this.streamName = streamName;
+        this.apiPrefix = apiPrefix;
+        this.subject = apiPrefix + String.format(JSAPI_DIRECT_GET, streamName);
+        this.timeout = timeout;
+        this.timeoutMillis = Math.max(1, timeout.toMillis());
+    }
+
+    /**
+     * Get the last message of a subject.
+     * @param lastSubject the subject, without wildcards
+     * @return the message or null if the subject has none
+     */
+    public Future<MessageInfo> last(String lastSubject) {
+        return single(apiPrefix + String.format(JSAPI_DIRECT_GET_LAST, streamName, lastSubject), null);
+    }
+
+    /**
+     * Get the message at a sequence.
+     * @param sequence the stream sequence
+     * @return the message or null if there is none at the sequence
+     */
+    public Future<MessageInfo> sequence(long sequence) {
+        return single(subject, MessageGetRequest.forSequence(sequence).serialize());
+    }
+
+    /**
+     * Whether a get failed because no server answered the request with the no responders status.
+     * A get that timed out is not one of them.
+     * @param t the failure
+     * @return true if there were no responders
+     */
+    public static boolean isNoResponders(Throwable t) {
+        return t instanceof JetStreamStatusException && ((JetStreamStatusException) t).getStatus().getCode() == NO_RESPONDERS_CODE;
+    }
+
+    private Future<MessageInfo> single(String requestSubject, byte[] payload) {
+        final CompletableFuture<Message> request = conn.requestWithTimeout(requestSubject, payload, timeout);
+        return Future.fromCompletionStage(request, context)
+            .recover(e -> context.failedFuture(requestFailure(request, e)))
+            .compose(m -> {
+                if (!m.isStatusMessage()) {
+                    return context.succeededFuture(new MessageInfo(m, streamName, true));
+                }
+                if (m.getStatus().getCode() == NOT_FOUND_CODE) {
+                    return context.succeededFuture();
+                }
+                return context.failedFuture(new JetStreamApiException(Error.convert(m.getStatus())));
+            });
+    }
+
+    /**
+     * jnats cancels a request that timed out, that was pending when the connection closed,
+     * or that got the no responders status unless the connection reports it as an exception.
+     * Only the last is a no responders failure.
+     */
+    private static Throwable requestFailure(CompletableFuture<Message> request, Throwable e) {
+        if (!(e instanceof CancellationException)) {
+            return e;
+        }
+        if (request instanceof NatsRequestCompletableFuture) {
+            final NatsRequestCompletableFuture nrcf = (NatsRequestCompletableFuture) request;
+            if (nrcf.wasCancelledTimedOut()) {
+                return new IOException("Timeout or no response waiting for NATS JetStream server");
+            }
+            if (nrcf.wasCancelledClosing()) {
+                return e;
+            }
+        }
+        return new JetStreamStatusException(new Status(NO_RESPONDERS_CODE, Status.NO_RESPONDERS_TEXT));
+    }
+
+    /**
+     * Get the last message of every subject in one request.
+     * The future fails with a JetStreamApiException if the server answers with an error status,
+     * for instance when it does not support batch gets.
+     * @param subjects the subjects, may contain wildcards
+     * @param batch the max number of messages, 0 for the server limit
+     * @return the messages, empty if no subject has one
+     */
+    public Future<List<MessageInfo>> multiLast(List<String> subjects, int batch) {
+        final StringBuilder sb = beginJson();
+        addStrings(sb, "multi_last", subjects);
+        if (batch > 0) {
+            addField(sb, "batch", batch);
+        }
+        return request(endJson(sb).toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Future<List<MessageInfo>> request(byte[] payload) {
+        final Promise<List<MessageInfo>> promise = context.promise();
+        final List<MessageInfo> messages = new ArrayList<>();
+        final String inbox = conn.createInbox();
+        final Dispatcher dispatcher = conn.createDispatcher();
+        final long timerId = context.owner().setTimer(timeoutMillis, id ->
+            promise.tryFail(new IOException("Timeout or no response waiting for NATS JetStream server")));
+        promise.future().onComplete(ar -> context.executeBlocking(() -> {
+            conn.closeDispatcher(dispatcher);
+            return null;
+        }, false));
+        dispatcher.subscribe(inbox, m -> {
+            if (!m.isStatusMessage()) {
+                synchronized (messages) {
+                    messages.add(new MessageInfo(m, streamName, true));
+                }
+                return;
+            }
+            context.owner().cancelTimer(timerId);
+            final Status status = m.getStatus();
+            if (status.isEob() || status.getCode() == NOT_FOUND_CODE) {
+                synchronized (messages) {
+                    promise.tryComplete(new ArrayList<>(messages));
+                }
+            }
+            else {
+                promise.tryFail(new JetStreamApiException(Error.convert(status)));
+            }
+        });
+        // the subscription is sent before the request on the same connection, so it is in place for the replies
+        conn.publish(subject, inbox, payload);
+        return promise.future();
+    }
+}
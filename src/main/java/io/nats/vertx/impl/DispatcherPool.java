@@ -0,0 +1,70 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.Message;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.impl.ContextInternal;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dispatchers shared by the subscriptions of a connection, one per event loop. A dispatcher routes
+ * its messages to the handler of each subscription by sid, so subscriptions on the same event loop
+ * share its message queue instead of creating a dispatcher each. A dispatcher delivers on the context
+ * it was created from, the handler of a subscription from another context on the same event loop
+ * is moved to its own context with {@link #onContext}.
+ */
+public class DispatcherPool {
+    private final Connection conn;
+    private final ConcurrentHashMap<Object, Dispatcher> dispatchers = new ConcurrentHashMap<>();
+
+    public DispatcherPool(Connection conn) {
+        this.conn = conn;
+    }
+
+    public Connection connection() {
+        return conn;
+    }
+
+    /**
+     * The dispatcher of the event loop of the context, created on first use. Call it on the context,
+     * a new dispatcher delivers on the context it is created from.
+     * @param context the context
+     * @return the dispatcher
+     */
+    public Dispatcher dispatcher(ContextInternal context) {
+        return dispatchers.computeIfAbsent(context.nettyEventLoop(), k -> conn.createDispatcher());
+    }
+
+    /**
+     * Wrap the handler of a subscription so it runs on the context of the subscriber. The dispatcher and the subscriber
+     * share the event loop thread, so the messages keep their order.
+     * @param context the context of the subscriber
+     * @param handler the handler
+     * @return the handler run on the context
+     */
+    public Handler<Message> onContext(ContextInternal context, Handler<Message> handler) {
+        return message -> {
+            if (Vertx.currentContext() == context) {
+                handler.handle(message);
+            }
+            else {
+                context.runOnContext(v -> handler.handle(message));
+            }
+        };
+    }
+
+    public int size() {
+        return dispatchers.size();
+    }
+
+    /**
+     * Close all the dispatchers of the pool.
+     */
+    public void close() {
+        dispatchers.values().forEach(conn::closeDispatcher);
+        dispatchers.clear();
+    }
+}
@@ -0,0 +1,19 @@
+package io.nats.vertx.impl;
+
+import io.vertx.core.Future;
+
+import java.time.Duration;
+
+/**
+ * A reader of a stream that can stop taking new messages, finish the ones it has and close,
+ * so a drain of the stream covers it.
+ */
+interface Drainable {
+
+    /**
+     * Stop taking new messages, let the messages in flight be handled and close.
+     * @param timeout the max time to wait for the messages in flight
+     * @return future that completes once closed
+     */
+    Future<Void> drain(Duration timeout);
+}
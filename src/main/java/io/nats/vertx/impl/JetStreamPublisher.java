@@ -0,0 +1,287 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.JetStream;
+import io.nats.client.Message;
+import io.nats.client.PublishOptions;
+import io.nats.client.api.PublishAck;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.impl.ContextInternal;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pipelines JetStream publishes using publishAsync. At most maxInFlight
+ * publishes are waiting for their PublishAck at any time, the rest are queued
+ * and sent in order as acks arrive. Futures are completed on the context of the caller.
+ * When an ack latency target is given the limit is adaptive, see {@link PublishWindow}.
+ * The publisher also keeps the write queue accounting for the WriteStream side of the stream,
+ * the write queue is full when the publishes in flight plus the ones waiting reach the write queue max size.
+ */
+public class JetStreamPublisher {
+    private final JetStream js;
+    private final AtomicReference<Handler<Throwable>> exceptionHandler;
+    private final ArrayDeque<PendingPublish> waiting = new ArrayDeque<>();
+    private final List<Promise<Void>> idlePromises = new ArrayList<>();
+    private final AtomicInteger sendWip = new AtomicInteger();
+    private final int maxInFlight;
+    private final PublishWindow window;
+    private int inFlight;
+    private long sendSeq;
+    private int writeQueueMaxSize;
+    private boolean drainPending;
+    private Handler<Void> drainHandler;
+    private ContextInternal drainContext;
+
+    static class PendingPublish {
+        final Message message;
+        final PublishOptions options;
+        final Promise<PublishAck> promise;
+        final Runnable before;
+        long sendSeq;
+        long sentNanos;
+
+        PendingPublish(Message message, PublishOptions options, Promise<PublishAck> promise, Runnable before) {
+            this.message = message;
+            this.options = options;
+            this.promise = promise;
+            this.before = before;
+        }
+    }
+
+    public JetStreamPublisher(JetStream js, int maxInFlight, AtomicReference<Handler<Throwable>> exceptionHandler) {
+        this(js, maxInFlight, null, exceptionHandler);
+    }
+
+    /**
+     * Create a publisher
+     * @param js the JetStream context
+     * @param maxInFlight the max number of publishes waiting for their ack
+     * @param ackLatencyTarget the ack latency target for the adaptive window, null for a fixed window of maxInFlight
+     * @param exceptionHandler the exception handler
+     */
+    public JetStreamPublisher(JetStream js, int maxInFlight, Duration ackLatencyTarget, AtomicReference<Handler<Throwable>> exceptionHandler) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Max in flight must be at least 1");
+        }
+        this.js = js;
+        this.maxInFlight = maxInFlight;
+        this.window = ackLatencyTarget == null ? null : new PublishWindow(maxInFlight, ackLatencyTarget);
+        this.writeQueueMaxSize = maxInFlight;
+        this.exceptionHandler = exceptionHandler;
+    }
+
+    /**
+     * Publish a message, the returned future completes on the given context when the ack arrives.
+     * @param context the context of the caller
+     * @param message the message
+     * @param options the publish options, may be null
+     * @return future of the ack
+     */
+    public Future<PublishAck> publish(ContextInternal context, Message message, PublishOptions options) {
+        return publish(context, message, options, null);
+    }
+
+    /**
+     * Publish a message with work that has to go out right before it, for instance the first messages
+     * of an atomic batch before its commit. The work runs on the sending thread when the message gets its
+     * slot in the window, so both go out together, and a failure of the work fails the publish.
+     * @param context the context of the caller
+     * @param message the message
+     * @param options the publish options, may be null
+     * @param before the work to run right before sending the message, may be null
+     * @return future of the ack
+     */
+    public Future<PublishAck> publish(ContextInternal context, Message message, PublishOptions options, Runnable before) {
+        final PendingPublish pp = new PendingPublish(message, options, context.promise(), before);
+        synchronized (this) {
+            waiting.add(pp);
+            if (inFlight + waiting.size() >= writeQueueMaxSize) {
+                drainPending = true;
+            }
+        }
+        sendWaiting();
+        return pp.promise.future();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * The current limit of publishes in flight, which is the
+     * max in flight unless the window is adaptive.
+     * @return the window
+     */
+    public synchronized int getWindow() {
+        return limit();
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getWaiting() {
+        return waiting.size();
+    }
+
+    public synchronized void setWriteQueueMaxSize(int writeQueueMaxSize) {
+        this.writeQueueMaxSize = Math.max(1, writeQueueMaxSize);
+    }
+
+    public synchronized boolean writeQueueFull() {
+        return inFlight + waiting.size() >= writeQueueMaxSize;
+    }
+
+    /**
+     * Set the handler called on the given context once a full write queue is half empty.
+     * @param context the context to call the handler on
+     * @param handler the handler, null to remove
+     */
+    public synchronized void drainHandler(ContextInternal context, Handler<Void> handler) {
+        this.drainHandler = handler;
+        this.drainContext = context;
+    }
+
+    /**
+     * Get a future that completes once nothing is in flight or waiting.
+     * @param context the context of the caller
+     * @return the future
+     */
+    public Future<Void> whenIdle(ContextInternal context) {
+        final Promise<Void> promise = context.promise();
+        synchronized (this) {
+            if (inFlight > 0 || !waiting.isEmpty()) {
+                idlePromises.add(promise);
+                return promise.future();
+            }
+        }
+        promise.complete();
+        return promise.future();
+    }
+
+    private int limit() {
+        return window == null ? maxInFlight : window.limit();
+    }
+
+    private synchronized PendingPublish nextToSend() {
+        if (inFlight >= limit() || waiting.isEmpty()) {
+            return null;
+        }
+        inFlight++;
+        PendingPublish pp = waiting.poll();
+        pp.sendSeq = ++sendSeq;
+        return pp;
+    }
+
+    /**
+     * Sends as many waiting publishes as the window allows. Only one thread sends at a time
+     * so publishes go out in the order they were made, a thread that finds another one
+     * sending leaves the work to it.
+     */
+    private void sendWaiting() {
+        if (sendWip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            PendingPublish pp;
+            while ((pp = nextToSend()) != null) {
+                send(pp);
+            }
+            missed = sendWip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void send(PendingPublish pp) {
+        CompletableFuture<PublishAck> future;
+        try {
+            if (pp.before != null) {
+                pp.before.run();
+            }
+            pp.sentNanos = System.nanoTime();
+            future = pp.options == null ? js.publishAsync(pp.message) : js.publishAsync(pp.message, pp.options);
+        }
+        catch (Exception e) {
+            release(pp, null, e);
+            return;
+        }
+
+        if (future == null) {
+            // publish no ack is set on the JetStreamOptions, there will never be an ack
+            release(pp, null, null);
+        }
+        else {
+            future.whenComplete((ack, t) -> {
+                release(pp, ack, t);
+                sendWaiting();
+            });
+        }
+    }
+
+    /**
+     * Completes the publish and frees its slot in the window.
+     */
+    private void release(PendingPublish pp, PublishAck ack, Throwable t) {
+        Throwable cause = t == null ? null : unwrap(t);
+        Handler<Void> drain = null;
+        ContextInternal drainOn = null;
+        List<Promise<Void>> idle = null;
+        synchronized (this) {
+            inFlight--;
+            if (window != null) {
+                if (cause == null) {
+                    window.onAck(pp.sendSeq, System.nanoTime() - pp.sentNanos, sendSeq);
+                }
+                else if (cause instanceof TimeoutException || cause instanceof CancellationException) {
+                    window.onTimeout(pp.sendSeq, sendSeq);
+                }
+            }
+            int size = inFlight + waiting.size();
+            if (drainPending && size <= writeQueueMaxSize / 2) {
+                drainPending = false;
+                drain = drainHandler;
+                drainOn = drainContext;
+            }
+            if (size == 0 && !idlePromises.isEmpty()) {
+                idle = new ArrayList<>(idlePromises);
+                idlePromises.clear();
+            }
+        }
+        if (cause == null) {
+            pp.promise.complete(ack);
+        }
+        else {
+            pp.promise.fail(cause);
+            Handler<Throwable> handler = exceptionHandler.get();
+            if (handler != null) {
+                handler.handle(cause);
+            }
+        }
+        if (drain != null) {
+            drainOn.runOnContext(drain);
+        }
+        if (idle != null) {
+            idle.forEach(Promise::tryComplete);
+        }
+    }
+
+    static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException
+            || t.getClass() == RuntimeException.class) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+}
@@ -0,0 +1,199 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.api.KeyValueEntry;
+import io.nats.client.api.KeyValueWatcher;
+import io.nats.client.impl.NatsKeyValueWatchSubscription;
+import io.nats.vertx.KeyValueNearCache;
+import io.vertx.core.Future;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Near-cache implementation, see {@link KeyValueNearCache}. The entries are held in an access ordered map,
+ * the least recently used one is evicted once the max entries are reached and entries older than the ttl are
+ * treated as missing. The cache is the watcher of an updates only watch of the bucket, every revision of a cached
+ * key replaces its entry. A load only stores its result if no revision of its key arrived while it was on the way,
+ * otherwise the result could be older than what the watch already delivered. The sequence of the last change
+ * of each recently changed key is kept for that, a load older than the changes that were dropped from it is not stored.
+ */
+public class KeyValueNearCacheImpl implements KeyValueNearCache, KeyValueWatcher {
+    static final int MAX_CHANGES_TRACKED = 10_000;
+
+    private final NatsVertxKeyValueImpl owner;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<String, Cached> entries;
+    private long hits;
+    private long misses;
+    private final LinkedHashMap<String, Long> changes = new LinkedHashMap<>();
+    private long epoch;
+    private long forgottenEpoch;
+    private NatsKeyValueWatchSubscription subscription;
+
+    /**
+     * A cached read, the entry is null when the key was not found.
+     */
+    static class Cached {
+        final KeyValueEntry entry;
+        final long loadedAt;
+
+        Cached(KeyValueEntry entry, long loadedAt) {
+            this.entry = entry;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * Create a cache, it is filled by the gets of the owner.
+     * @param owner the key value handle
+     * @param maxEntries the max number of keys cached
+     * @param ttl the max age of an entry, null or zero for no limit
+     */
+    public KeyValueNearCacheImpl(NatsVertxKeyValueImpl owner, int maxEntries, Duration ttl) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Max entries must be at least 1");
+        }
+        this.owner = owner;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl == null ? 0 : ttl.toNanos();
+        this.entries = new LinkedHashMap<String, Cached>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                return size() > KeyValueNearCacheImpl.this.maxEntries;
+            }
+        };
+    }
+
+    synchronized void subscription(NatsKeyValueWatchSubscription subscription) {
+        this.subscription = subscription;
+    }
+
+    /**
+     * Look up a key and count the hit or miss.
+     * @param key the key
+     * @param now the current nano time
+     * @return the cached read or null on a miss
+     */
+    synchronized Cached lookup(String key, long now) {
+        final Cached cached = entries.get(key);
+        if (cached != null && ttlNanos > 0 && now - cached.loadedAt > ttlNanos) {
+            entries.remove(key);
+        }
+        else if (cached != null) {
+            hits++;
+            return cached;
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * The current change sequence, taken before a load and passed to {@link #loaded}.
+     * @return the epoch
+     */
+    synchronized long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Store the result of a load unless a revision or an invalidation of its key arrived since the load started,
+     * or the cache already holds a newer revision.
+     * @param key the key
+     * @param entry the entry, null if not found
+     * @param loadEpoch the epoch before the load
+     * @param now the current nano time
+     */
+    synchronized void loaded(String key, KeyValueEntry entry, long loadEpoch, long now) {
+        final Long changed = changes.get(key);
+        if (changed != null && changed > loadEpoch || loadEpoch < forgottenEpoch) {
+            return;
+        }
+        final Cached cached = entries.get(key);
+        if (cached != null && cached.entry != null && (entry == null || cached.entry.getRevision() > entry.getRevision())) {
+            return;
+        }
+        entries.put(key, new Cached(entry, now));
+    }
+
+    /**
+     * Drop a key, for instance after a write through this handle.
+     * @param key the key
+     */
+    synchronized void invalidate(String key) {
+        changed(key);
+        entries.remove(key);
+    }
+
+    /**
+     * Record a change of a key, called holding the lock. The oldest change is dropped once too many are tracked.
+     */
+    private void changed(String key) {
+        epoch++;
+        changes.remove(key);
+        changes.put(key, epoch);
+        if (changes.size() > MAX_CHANGES_TRACKED) {
+            final Iterator<Long> oldest = changes.values().iterator();
+            forgottenEpoch = oldest.next();
+            oldest.remove();
+        }
+    }
+
+    @Override
+    public void watch(KeyValueEntry entry) {
+        final long now = System.nanoTime();
+        synchronized (this) {
+            changed(entry.getKey());
+            final Cached cached = entries.get(entry.getKey());
+            if (cached != null && (cached.entry == null || cached.entry.getRevision() < entry.getRevision())) {
+                entries.put(entry.getKey(), new Cached(entry, now));
+            }
+        }
+    }
+
+    @Override
+    public void endOfData() {
+        // updates only, there is no initial data
+    }
+
+    @Override
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    @Override
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized double getHitRatio() {
+        final long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public Future<Void> close() {
+        final NatsKeyValueWatchSubscription sub;
+        synchronized (this) {
+            sub = subscription;
+            subscription = null;
+            entries.clear();
+            changes.clear();
+        }
+        owner.nearCacheClosed(this);
+        return owner.executeUnorderedBlocking(() -> {
+            if (sub != null) {
+                sub.unsubscribe();
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,154 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.api.KeyValueEntry;
+import io.nats.client.api.KeyValueOperation;
+import io.nats.client.api.KeyValueWatcher;
+import io.nats.client.impl.NatsKeyValueWatchSubscription;
+import io.nats.vertx.MaterializedKeyValue;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.impl.ContextInternal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Materialized key value implementation, see {@link MaterializedKeyValue}. The replica is the watcher of a watch
+ * of the whole bucket, which starts with the last entry of every key, delivered by an ordered consumer, and then
+ * follows the new revisions. Live entries are put into a sorted concurrent map so prefix scans are sub maps,
+ * deletes and purges remove the key. The load is done at the end of the initial data.
+ */
+public class MaterializedKeyValueImpl implements MaterializedKeyValue, KeyValueWatcher {
+    private final NatsVertxKeyValueImpl owner;
+    private final ContextInternal context;
+    private final ConcurrentSkipListMap<String, KeyValueEntry> entries = new ConcurrentSkipListMap<>();
+    private final TreeMap<Long, List<Promise<Void>>> waiters = new TreeMap<>();
+    private final Promise<MaterializedKeyValue> loaded;
+    private volatile long revision;
+    private volatile boolean closed;
+    private NatsKeyValueWatchSubscription subscription;
+
+    /**
+     * Create a replica, it is filled by the watch it is passed to.
+     * @param owner the key value handle
+     * @param context the context to complete the futures on
+     */
+    public MaterializedKeyValueImpl(NatsVertxKeyValueImpl owner, ContextInternal context) {
+        this.owner = owner;
+        this.context = context;
+        this.loaded = context.promise();
+    }
+
+    synchronized void subscription(NatsKeyValueWatchSubscription subscription) {
+        this.subscription = subscription;
+    }
+
+    /**
+     * The initial load.
+     * @return future that completes when the last entries of all keys are applied
+     */
+    Future<MaterializedKeyValue> loaded() {
+        return loaded.future();
+    }
+
+    @Override
+    public void watch(KeyValueEntry entry) {
+        if (closed) {
+            return;
+        }
+        if (entry.getOperation() == KeyValueOperation.PUT) {
+            entries.put(entry.getKey(), entry);
+        }
+        else {
+            entries.remove(entry.getKey());
+        }
+        final List<Promise<Void>> reached = new ArrayList<>();
+        synchronized (this) {
+            if (entry.getRevision() > revision) {
+                revision = entry.getRevision();
+            }
+            final Map<Long, List<Promise<Void>>> head = waiters.headMap(revision, true);
+            head.values().forEach(reached::addAll);
+            head.clear();
+        }
+        reached.forEach(Promise::tryComplete);
+    }
+
+    @Override
+    public void endOfData() {
+        loaded.tryComplete(this);
+    }
+
+    @Override
+    public KeyValueEntry get(String key) {
+        return entries.get(key);
+    }
+
+    @Override
+    public List<String> keys() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    @Override
+    public List<String> keys(String prefix) {
+        return new ArrayList<>(scan(prefix).keySet());
+    }
+
+    @Override
+    public NavigableMap<String, KeyValueEntry> scan(String prefix) {
+        return Collections.unmodifiableNavigableMap(entries.subMap(prefix, true, prefix + Character.MAX_VALUE, false));
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public long getRevision() {
+        return revision;
+    }
+
+    @Override
+    public Future<Void> awaitRevision(long revision) {
+        synchronized (this) {
+            if (closed) {
+                return context.failedFuture(new IllegalStateException("Materialized key value is closed"));
+            }
+            if (revision > this.revision) {
+                final Promise<Void> promise = context.promise();
+                waiters.computeIfAbsent(revision, r -> new ArrayList<>()).add(promise);
+                return promise.future();
+            }
+        }
+        return context.succeededFuture();
+    }
+
+    @Override
+    public Future<Void> close() {
+        final NatsKeyValueWatchSubscription sub;
+        final List<Promise<Void>> pending = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            sub = subscription;
+            subscription = null;
+            waiters.values().forEach(pending::addAll);
+            waiters.clear();
+        }
+        entries.clear();
+        final IllegalStateException e = new IllegalStateException("Materialized key value is closed");
+        pending.forEach(p -> p.tryFail(e));
+        loaded.tryFail(e);
+        return owner.executeUnorderedBlocking(() -> {
+            if (sub != null) {
+                sub.unsubscribe();
+            }
+            return null;
+        });
+    }
+}
@@ -13,6 +13,11 @@ import io.vertx.core.streams.WriteStream;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
@@ -35,6 +40,12 @@ public class NatsClientImpl implements NatsClient {
     private final ConcurrentHashMap<String, SubscriptionPromise> subscriptionMap;
     private final Duration nextTimeout;
     private final long noMessageDelay;
+    private final int maxPublishInFlight;
+    private final Duration publishAckLatencyTarget;
+    private final boolean dispatcherPooling;
+    private DispatcherPool dispatcherPool;
+    // weakly held, a stream the application dropped and that has no subscriptions left does not stay around until the drain
+    private final Set<NatsStreamImpl> streams = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
 
     /* inner */ class SubscriptionPromise {
         final Subscription sub;
@@ -60,6 +71,9 @@ public class NatsClientImpl implements NatsClient {
         periodicFlushInterval = natsOptions.getPeriodicFlushInterval();
         nextTimeout = natsOptions.getNextTimeout();
         noMessageDelay = natsOptions.getNoMessageDelayMillis();
+        maxPublishInFlight = natsOptions.getMaxPublishInFlight();
+        publishAckLatencyTarget = natsOptions.getPublishAckLatencyTarget();
+        dispatcherPooling = natsOptions.isDispatcherPooling();
         subscriptionMap = new ConcurrentHashMap<>();
 
         config.dispatcherFactory(new VertxDispatcherFactory(vertx));
@@ -73,6 +87,20 @@ public class NatsClientImpl implements NatsClient {
         }
     }
 
+    /**
+     * The dispatcher pool of the current connection, null if dispatchers are not pooled.
+     */
+    private synchronized DispatcherPool dispatcherPool() {
+        if (!dispatcherPooling) {
+            return null;
+        }
+        final Connection conn = connection.get();
+        if (dispatcherPool == null || dispatcherPool.connection() != conn) {
+            dispatcherPool = new DispatcherPool(conn);
+        }
+        return dispatcherPool;
+    }
+
     private ContextInternal context() {
         return (ContextInternal) vertx.getOrCreateContext();
     }
@@ -166,7 +194,9 @@ public class NatsClientImpl implements NatsClient {
 
         context().executeBlocking(event -> {
             try {
-                promise.complete(new NatsStreamImpl(connection.get(), vertx, exceptionHandler.get(), jso));
+                final NatsStreamImpl stream = new NatsStreamImpl(connection.get(), vertx, exceptionHandler.get(), jso, maxPublishInFlight, publishAckLatencyTarget, dispatcherPool());
+                streams.add(stream);
+                promise.complete(stream);
             } catch (Exception e) {
                 handleException(promise, e);
             }
@@ -571,11 +601,31 @@ public class NatsClientImpl implements NatsClient {
         return this.connection.get();
     }
 
+    @Override
+    public Future<Void> drain(final Duration timeout) {
+        final ContextInternal context = context();
+        final List<Future<?>> drained = new ArrayList<>();
+        final List<NatsStreamImpl> draining;
+        synchronized (streams) {
+            draining = new ArrayList<>(streams);
+            streams.clear();
+        }
+        for (NatsStreamImpl stream : draining) {
+            drained.add(stream.drain(timeout));
+        }
+        // the connection drains the remaining subscriptions and dispatchers, then closes
+        return Future.join(drained).transform(ar -> context.<Void>executeBlocking(() -> {
+            getConnection().drain(timeout).get();
+            return null;
+        }, false)).onFailure(e -> exceptionHandler.get().handle(e));
+    }
+
     @Override
     public Future<Void> close() {
         final Promise<Void> promise = context().promise();
         context().executeBlocking(event -> {
             try {
+              streams.clear();
               getConnection().close();
               promise.complete();
             } catch (Exception e) {
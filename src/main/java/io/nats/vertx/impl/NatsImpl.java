@@ -1,8 +1,6 @@
 package io.nats.vertx.impl;
 
 import io.nats.client.*;
-import io.nats.client.api.AckPolicy;
-import io.nats.client.api.ConsumerConfiguration;
 import io.nats.client.api.DeliverPolicy;
 import io.vertx.core.*;
 import io.vertx.core.impl.ContextInternal;
@@ -23,7 +21,7 @@ public class NatsImpl {
     public final Vertx vertx;
 
     protected final ConcurrentHashMap<String, Dispatcher> dispatcherMap = new ConcurrentHashMap<>();
-    protected final ConcurrentHashMap<String, JetStreamSubscription> subscriptionMap = new ConcurrentHashMap<>();
+    protected final ConcurrentHashMap<String, SubscriptionReadStreamImpl> subscriptionMap = new ConcurrentHashMap<>();
 
     public final Connection conn;
     public final Duration timeout;
@@ -78,48 +76,36 @@ public class NatsImpl {
         }, false);
     }
 
-    protected void visitSubject(String streamName, String subject, DeliverPolicy deliverPolicy, boolean headersOnly, boolean ordered, MessageHandler handler) throws IOException, JetStreamApiException {
-        visitSubject(streamName, Collections.singletonList(subject), deliverPolicy, headersOnly, ordered, handler);
+    protected Future<Void> visitSubject(String streamName, String subject, DeliverPolicy deliverPolicy, boolean headersOnly, Handler<Message> handler) {
+        return visitSubject(streamName, Collections.singletonList(subject), deliverPolicy, headersOnly, handler);
     }
 
-    protected void visitSubject(String streamName, List<String> subjects, DeliverPolicy deliverPolicy, boolean headersOnly, boolean ordered, MessageHandler handler) throws IOException, JetStreamApiException {
-        ConsumerConfiguration.Builder ccb = ConsumerConfiguration.builder()
-            .ackPolicy(AckPolicy.None)
-            .deliverPolicy(deliverPolicy)
-            .headersOnly(headersOnly)
-            .filterSubjects(subjects);
-
-        PushSubscribeOptions pso = PushSubscribeOptions.builder()
-            .stream(streamName)
-            .ordered(ordered)
-            .configuration(ccb.build())
-            .build();
-
-        JetStreamSubscription sub = js.subscribe(null, pso);
-        try {
-            boolean lastWasNull = false;
-            long pending = sub.getConsumerInfo().getCalculatedPending();
-            while (pending > 0) { // no need to loop if nothing pending
-                Message m = sub.nextMessage(timeout);
-                if (m == null) {
-                    if (lastWasNull) {
-                        return; // two timeouts in a row is enough
-                    }
-                    lastWasNull = true;
-                }
-                else {
-                    handler.onMessage(m);
-                    if (--pending == 0) {
-                        return;
-                    }
-                    lastWasNull = false;
+    /**
+     * Pass the messages of stream subjects to a handler on the context, read from an ordered consumer.
+     * No thread waits for the messages, the visit is done on the message that leaves nothing pending.
+     * It fails if no message arrives within the request timeout, so a consumer that stalls does not leave it open.
+     * @param streamName the stream
+     * @param subjects the filter subjects
+     * @param deliverPolicy the deliver policy
+     * @param headersOnly whether the messages are read without their data
+     * @param handler the handler, a failure ends the visit
+     * @return future that completes after the last message is handled
+     */
+    protected Future<Void> visitSubject(String streamName, List<String> subjects, DeliverPolicy deliverPolicy, boolean headersOnly, Handler<Message> handler) {
+        final Promise<Void> promise = context().promise();
+        final SubjectReadStream<Message> stream = new SubjectReadStream<>(context(), conn, js, m -> m, Integer.MAX_VALUE, exceptionHandler);
+        stream.exceptionHandler(t -> {
+            if (promise.tryFail(t)) {
+                stream.cancel();
+                final Handler<Throwable> h = exceptionHandler.get();
+                if (h != null) {
+                    h.handle(t);
                 }
             }
-        } catch (Exception e) {
-            exceptionHandler.get().handle(e);
-        }
-        finally {
-            sub.unsubscribe();
-        }
+        });
+        stream.endHandler(v -> promise.tryComplete()).handler(handler);
+        stream.idleTimeout(timeout);
+        stream.start(streamName, subjects, deliverPolicy, headersOnly).onFailure(promise::tryFail);
+        return promise.future();
     }
 }
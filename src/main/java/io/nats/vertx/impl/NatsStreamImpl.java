@@ -1,22 +1,52 @@
 package io.nats.vertx.impl;
 
 import io.nats.client.*;
+import io.nats.client.api.AckPolicy;
+import io.nats.client.api.ConsumerConfiguration;
 import io.nats.client.api.PublishAck;
 import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsMessage;
+import io.nats.vertx.ConsumerMetrics;
+import io.nats.vertx.ConsumerReadStream;
+import io.nats.vertx.NatsOptions;
 import io.nats.vertx.NatsStream;
 import io.nats.vertx.NatsVertxMessage;
+import io.nats.vertx.PartitionedProcessor;
+import io.nats.vertx.PublishAllException;
+import io.nats.vertx.PullWorkers;
+import io.nats.vertx.PushSubscriptionReadStream;
+import io.nats.vertx.SubjectSequencer;
 import io.nats.vertx.SubscriptionReadStream;
 import io.vertx.core.*;
+import io.vertx.core.impl.ContextInternal;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.core.streams.WriteStream;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.Iterator;
-import java.util.List;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static io.nats.client.support.NatsJetStreamConstants.*;
 
 /**
  * NATS stream implementation.
  */
 public class NatsStreamImpl extends NatsImpl implements NatsStream {
+    static final long DRAIN_GRACE_MILLIS = 1000;
+
+    private final JetStreamPublisher publisher;
+    private final DispatcherPool dispatcherPool;
+    private final ConcurrentHashMap<String, Subscription> pooledSubscriptionMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Subscription, ConsumerMetricsRecorder> pushMetricsMap = new ConcurrentHashMap<>();
+    // push streams, partitioned processors, pull workers and consumer streams, held weakly, a stopped one goes away
+    private final Set<Drainable> readers = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private volatile long metricsTimerId = -1;
 
     /**
      * Create instance
@@ -26,7 +56,39 @@ public class NatsStreamImpl extends NatsImpl implements NatsStream {
      */
     public NatsStreamImpl(final Connection connection, final Vertx vertx,
                           final Handler<Throwable> exceptionHandler, final JetStreamOptions jso) {
+        this(connection, vertx, exceptionHandler, jso, NatsOptions.DEFAULT_MAX_PUBLISH_IN_FLIGHT, null);
+    }
+
+    /**
+     * Create instance
+     * @param connection Nats connection
+     * @param jso jetStreamOptions
+     * @param vertx vertx
+     * @param maxPublishInFlight the maximum number of publishes waiting for their ack
+     * @param publishAckLatencyTarget the ack latency target of the adaptive publish window, null for a fixed window
+     */
+    public NatsStreamImpl(final Connection connection, final Vertx vertx,
+                          final Handler<Throwable> exceptionHandler, final JetStreamOptions jso,
+                          final int maxPublishInFlight, final Duration publishAckLatencyTarget) {
+        this(connection, vertx, exceptionHandler, jso, maxPublishInFlight, publishAckLatencyTarget, null);
+    }
+
+    /**
+     * Create instance
+     * @param connection Nats connection
+     * @param jso jetStreamOptions
+     * @param vertx vertx
+     * @param maxPublishInFlight the maximum number of publishes waiting for their ack
+     * @param publishAckLatencyTarget the ack latency target of the adaptive publish window, null for a fixed window
+     * @param dispatcherPool the dispatchers shared by push subscriptions, null for a dispatcher per subscription
+     */
+    public NatsStreamImpl(final Connection connection, final Vertx vertx,
+                          final Handler<Throwable> exceptionHandler, final JetStreamOptions jso,
+                          final int maxPublishInFlight, final Duration publishAckLatencyTarget,
+                          final DispatcherPool dispatcherPool) {
         super(connection, vertx, exceptionHandler, jso);
+        this.publisher = new JetStreamPublisher(js, maxPublishInFlight, publishAckLatencyTarget, this.exceptionHandler);
+        this.dispatcherPool = dispatcherPool;
     }
 
     @Override
@@ -37,66 +99,62 @@ public class NatsStreamImpl extends NatsImpl implements NatsStream {
 
     @Override
     public Future<Void> write(Message data) {
-        final Promise<Void> promise = context().promise();
-        doPublish(data, promise);
-        return promise.future();
+        return publisher.publish(context(), data, null).compose(this::checkWriteAck);
     }
 
     @Override
     public void write(Message data, Handler<AsyncResult<Void>> handler) {
-        final Promise<Void> promise = context().promise();
-        doPublish(data, promise);
-        handler.handle(promise.future());
-
+        write(data).onComplete(handler);
     }
 
-    private void doPublish(Message data, Promise<Void> promise) {
-        try {
-            PublishAck publish = js.publish(data);
-            if (publish.isDuplicate()) {
-                promise.fail("Duplicate message " + publish);
-            } else if (publish.hasError()) {
-                promise.fail(publish.getError() + " " + publish);
-            } else {
-                promise.complete();
-            }
-        } catch (Exception e) {
-            handleException(promise, e);
+    private Future<Void> checkWriteAck(PublishAck publish) {
+        if (publish == null) {
+            return Future.succeededFuture();
         }
+        if (publish.isDuplicate()) {
+            return Future.failedFuture("Duplicate message " + publish);
+        }
+        if (publish.hasError()) {
+            return Future.failedFuture(publish.getError() + " " + publish);
+        }
+        return Future.succeededFuture();
     }
 
     @Override
     public void end(Handler<AsyncResult<Void>> handler) {
-        endImpl(handler);
+        publisher.whenIdle(context()).onComplete(handler);
     }
 
     @Override
     public WriteStream<Message> setWriteQueueMaxSize(int maxSize) {
+        publisher.setWriteQueueMaxSize(maxSize);
         return this;
     }
 
     @Override
     public boolean writeQueueFull() {
-        return false;
+        return publisher.writeQueueFull();
     }
 
     @Override
     public NatsStream drainHandler(Handler<Void> handler) {
+        publisher.drainHandler(context(), handler);
         return this;
     }
 
     @Override
     public Future<PublishAck> publish(final Message data) {
-        final Promise<PublishAck> promise = context().promise();
-        context().executeBlocking(event -> {
-            try {
-                PublishAck ack = js.publish(data);
-                promise.complete(ack);
-            } catch (Exception e) {
-                handleException(promise, e);
-            }
-        }, false);
-        return promise.future();
+        return publisher.publish(context(), data, null);
+    }
+
+    @Override
+    public int getPublishWindow() {
+        return publisher.getWindow();
+    }
+
+    @Override
+    public int getPublishInFlight() {
+        return publisher.getInFlight();
     }
 
     @Override
@@ -106,75 +164,105 @@ public class NatsStreamImpl extends NatsImpl implements NatsStream {
 
     @Override
     public Future<PublishAck> publish(final String subject, final byte[] message) {
-        final Promise<PublishAck> promise = context().promise();
-        context().executeBlocking(event -> {
-            try {
-                final PublishAck ack = js.publish(subject, message);
-                promise.complete(ack);
-            } catch (Exception e) {
-                handleException(promise, e);
-            }
-        }, false);
-
-        return promise.future();
+        return publisher.publish(context(), NatsMessage.builder().subject(subject).data(message).build(), null);
     }
 
     @Override
     public void publish(Message data, Handler<AsyncResult<PublishAck>> handler) {
-        final Promise<PublishAck> promise = context().promise();
-        context().executeBlocking(event -> {
-            try {
-                PublishAck ack = js.publish(data);
-                promise.complete(ack);
-            } catch (Exception e) {
-                handleException(promise, e);
-            }
-        }, false);
-        handler.handle(promise.future());
+        publisher.publish(context(), data, null).onComplete(handler);
     }
 
     @Override
     public Future<PublishAck> publish(Message data, PublishOptions options) {
-        final Promise<PublishAck> promise = context().promise();
-        context().executeBlocking(event -> {
-            try {
-                final PublishAck ack = js.publish(data, options);
-                promise.complete(ack);
-            } catch (Exception e) {
-                handleException(promise, e);
-            }
-        }, false);
-        return promise.future();
+        return publisher.publish(context(), data, options);
     }
 
     @Override
     public Future<PublishAck> publish(String subject, Headers headers, byte[] body) {
-        final Promise<PublishAck> promise = context().promise();
-        context().executeBlocking(event -> {
-            try {
-                final PublishAck ack = js.publish(subject, headers, body);
-                promise.complete(ack);
-            } catch (Exception e) {
-                handleException(promise, e);
-            }
-        }, false);
-        return promise.future();
+        return publish(subject, headers, body, null);
     }
 
     @Override
     public Future<PublishAck> publish(String subject, Headers headers, byte[] body, PublishOptions options) {
-        final Promise<PublishAck> promise = context().promise();
-        context().executeBlocking(event -> {
-            try {
-                final PublishAck ack = js.publish(subject, headers, body, options);
-                promise.complete(ack);
-            } catch (Exception e) {
-                handleException(promise, e);
-            }
-        }, false);
+        final Message message = NatsMessage.builder().subject(subject).headers(headers).data(body).build();
+        return publisher.publish(context(), message, options);
+    }
+
+    @Override
+    public Future<List<PublishAck>> publishAll(final List<Message> messages) {
+        final ContextInternal context = context();
+        final int size = messages.size();
+        if (size == 0) {
+            return context.succeededFuture(Collections.emptyList());
+        }
+        final Promise<List<PublishAck>> promise = context.promise();
+        final PublishAck[] acks = new PublishAck[size];
+        final Map<Integer, Throwable> failures = new ConcurrentHashMap<>();
+        final AtomicInteger remaining = new AtomicInteger(size);
+        for (int i = 0; i < size; i++) {
+            final int index = i;
+            publisher.publish(context, messages.get(i), null).onComplete(ar -> {
+                if (ar.succeeded()) {
+                    acks[index] = ar.result();
+                }
+                else {
+                    failures.put(index, ar.cause());
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    final List<PublishAck> list = Arrays.asList(acks);
+                    if (failures.isEmpty()) {
+                        promise.complete(list);
+                    }
+                    else {
+                        promise.fail(new PublishAllException(list, new TreeMap<>(failures)));
+                    }
+                }
+            });
+        }
         return promise.future();
     }
 
+    @Override
+    public Future<PublishAck> publishAllAtomic(final List<Message> messages) {
+        final ContextInternal context = context();
+        if (messages.isEmpty()) {
+            return context.failedFuture(new IllegalArgumentException("An atomic batch requires at least one message"));
+        }
+        final String batchId = NUID.nextGlobal();
+        final int last = messages.size() - 1;
+        // the batch takes one slot of the window, the messages before the commit go out right before it,
+        // so the server batch timer does not run while the commit waits behind other publishes
+        return publisher.publish(context, batchMessage(messages.get(last), batchId, last + 1, true), null, () -> {
+            for (int i = 0; i < last; i++) {
+                conn.publish(batchMessage(messages.get(i), batchId, i + 1, false));
+            }
+        });
+    }
+
+    @Override
+    public SubjectSequencer sequencer(String subject, long lastSequence) {
+        return sequencer(subject, lastSequence, false);
+    }
+
+    @Override
+    public SubjectSequencer sequencer(String subject, long lastSequence, boolean atomicBatches) {
+        return new SubjectSequencerImpl(this, subject, lastSequence, atomicBatches);
+    }
+
+    private Message batchMessage(Message message, String batchId, int batchSequence, boolean commit) {
+        final Headers headers = new Headers(message.getHeaders())
+            .put(NATS_BATCH_ID_HDR, batchId)
+            .put(NATS_BATCH_SEQUENCE_HDR, Integer.toString(batchSequence));
+        if (commit) {
+            headers.put(NATS_BATCH_COMMIT_HDR, "1");
+        }
+        return NatsMessage.builder()
+            .subject(message.getSubject())
+            .headers(headers)
+            .data(message.getData())
+            .build();
+    }
+
     @Override
     public Future<Void> subscribe(String subject, Handler<NatsVertxMessage> handler, boolean autoAck) {
         return subscribe(subject, handler, autoAck, null);
@@ -183,12 +271,13 @@ public class NatsStreamImpl extends NatsImpl implements NatsStream {
     @Override
     public Future<Void> subscribe(String subject, Handler<NatsVertxMessage> handler, boolean autoAck, PushSubscribeOptions so) {
         final Promise<Void> promise = context().promise();
-        final Handler<Message> handlerWrapper = event -> handler.handle(new NatsVertxMessageImpl(event, context()));
-        final Dispatcher dispatcher = conn.createDispatcher();
+        final ConsumerMetricsRecorder recorder = pushRecorder(subject, so);
+        final Handler<Message> handlerWrapper = onSubscriberContext(pushHandler(recorder, autoAck, handler));
+        final Dispatcher dispatcher = pushDispatcher();
         context().executeBlocking(event -> {
             try {
-                js.subscribe(subject, dispatcher, handlerWrapper::handle, autoAck, so);
-                dispatcherMap.put(subject, dispatcher);
+                final JetStreamSubscription subscription = js.subscribe(subject, dispatcher, handlerWrapper::handle, autoAck, so);
+                registerPush(subject, dispatcher, subscription, recorder);
                 promise.complete();
             } catch (Exception e) {
                 handleException(promise, e);
@@ -200,12 +289,13 @@ public class NatsStreamImpl extends NatsImpl implements NatsStream {
     @Override
     public Future<Void> subscribe(String subject, String queue, final Handler<NatsVertxMessage> handler, boolean autoAck, PushSubscribeOptions so) {
         final Promise<Void> promise = context().promise();
-        final Handler<Message> handlerWrapper = event -> handler.handle(new NatsVertxMessageImpl(event, context()));
-        final Dispatcher dispatcher = conn.createDispatcher();
+        final ConsumerMetricsRecorder recorder = pushRecorder(subject, so);
+        final Handler<Message> handlerWrapper = onSubscriberContext(pushHandler(recorder, autoAck, handler));
+        final Dispatcher dispatcher = pushDispatcher();
         context().executeBlocking(event -> {
             try {
-                js.subscribe(subject, queue, dispatcher, handlerWrapper::handle, autoAck, so);
-                dispatcherMap.put(subject, dispatcher);
+                final JetStreamSubscription subscription = js.subscribe(subject, queue, dispatcher, handlerWrapper::handle, autoAck, so);
+                registerPush(subject, dispatcher, subscription, recorder);
                 promise.complete();
             } catch (Exception e) {
                 handleException(promise, e);
@@ -215,16 +305,104 @@ public class NatsStreamImpl extends NatsImpl implements NatsStream {
     }
 
 
+    private ConsumerMetricsRecorder pushRecorder(String subject, PushSubscribeOptions so) {
+        return new ConsumerMetricsRecorder(subject, so == null ? null : so.getConsumerConfiguration().getAckWait());
+    }
+
+    /**
+     * Wraps the handler of a push subscription, recording the delivery, the handler time and the settlement once metrics are on.
+     * With auto ack jnats acks the message once the handler returns, the delivery counts as settled then.
+     */
+    private Handler<Message> pushHandler(ConsumerMetricsRecorder recorder, boolean autoAck, Handler<NatsVertxMessage> handler) {
+        return event -> {
+            if (metricsTimerId == -1) {
+                handler.handle(new NatsVertxMessageImpl(event, context()));
+                return;
+            }
+            recorder.delivered(event);
+            final long start = System.nanoTime();
+            try {
+                handler.handle(new NatsVertxMessageImpl(event, context(), null, null, recorder::settled));
+            } finally {
+                recorder.processed(System.nanoTime() - start);
+                if (autoAck) {
+                    recorder.settled(event);
+                }
+            }
+        };
+    }
+
+    @Override
+    public synchronized NatsStream metrics(Duration interval, Handler<ConsumerMetrics> handler) {
+        if (metricsTimerId != -1) {
+            vertx.cancelTimer(metricsTimerId);
+            metricsTimerId = -1;
+        }
+        if (handler != null) {
+            metricsTimerId = vertx.setPeriodic(interval.toMillis(), id -> {
+                pushMetricsMap.values().forEach(recorder -> handler.handle(recorder.sample()));
+                subscriptionMap.values().forEach(rs -> handler.handle(rs.metricsRecorder().sample()));
+            });
+            // pull subscriptions record from now on
+            subscriptionMap.values().forEach(SubscriptionReadStreamImpl::metricsRecorder);
+        }
+        return this;
+    }
+
+    /**
+     * The dispatcher for a push subscription, from the pool if dispatchers are pooled.
+     */
+    private Dispatcher pushDispatcher() {
+        return dispatcherPool == null ? conn.createDispatcher() : dispatcherPool.dispatcher(context());
+    }
+
+    /**
+     * The handler of a push subscription, moved to the context of the subscriber if the dispatcher is pooled,
+     * a pooled dispatcher delivers on the context of the first subscriber of its event loop.
+     */
+    private Handler<Message> onSubscriberContext(Handler<Message> handler) {
+        return dispatcherPool == null ? handler : dispatcherPool.onContext(context(), handler);
+    }
+
+    private void registerPush(String subject, Dispatcher dispatcher, Subscription subscription, ConsumerMetricsRecorder recorder) {
+        pushMetricsMap.put(subscription, recorder);
+        if (dispatcherPool == null) {
+            dispatcherMap.put(subject, dispatcher);
+        }
+        else {
+            pooledSubscriptionMap.put(subject, subscription);
+        }
+    }
+
     @Override
     public Future<SubscriptionReadStream> subscribe(final String subject, final PullSubscribeOptions so) {
         final Promise<SubscriptionReadStream> promise = context().promise();
+        final Dispatcher dispatcher = conn.createDispatcher();
+        final SubscriptionReadStreamImpl subscriptionReadStream = new SubscriptionReadStreamImpl(context(), exceptionHandler);
         context().executeBlocking(evt -> {
             try {
-                final JetStreamSubscription subscription = so != null ? js.subscribe(subject, so) : js.subscribe(subject);
-                final SubscriptionReadStream subscriptionReadStream = new SubscriptionReadStreamImpl(context(), subscription, exceptionHandler);
-                subscriptionMap.put(subject, subscription);
+                final PullSubscribeOptions pso = so != null ? so : PullSubscribeOptions.DEFAULT_PULL_OPTS;
+                final JetStreamSubscription subscription = js.subscribe(subject, dispatcher, subscriptionReadStream::onMessage, pso);
+                final ConsumerConfiguration cc = pso.getConsumerConfiguration();
+                if (cc.ackPolicyWasSet()) {
+                    subscriptionReadStream.ackPolicy(cc.getAckPolicy());
+                    subscriptionReadStream.ackWait(cc.getAckWait());
+                }
+                else if (pso.isBind() || pso.getDurable() != null || pso.getName() != null) {
+                    // an existing consumer keeps its own ack policy
+                    final ConsumerConfiguration existing = subscription.getConsumerInfo().getConsumerConfiguration();
+                    subscriptionReadStream.ackPolicy(existing.getAckPolicy());
+                    subscriptionReadStream.ackWait(existing.getAckWait());
+                }
+                else {
+                    subscriptionReadStream.ackWait(cc.getAckWait());
+                }
+                subscriptionReadStream.subscription(subscription);
+                dispatcherMap.put(subject, dispatcher);
+                subscriptionMap.put(subject, subscriptionReadStream);
                 promise.complete(subscriptionReadStream);
             } catch (Exception e) {
+                conn.closeDispatcher(dispatcher);
                 handleException(promise, e);
             }
         }, false);
@@ -236,17 +414,18 @@ public class NatsStreamImpl extends NatsImpl implements NatsStream {
        return subscribe(subject, null);
     }
 
-    public Future<List<NatsVertxMessage>> fetch(final String subject, final int batchSize, final long maxWaitMillis) {
-        final Promise<List<NatsVertxMessage>> promise = context().promise();
+    @Override
+    public Future<PushSubscriptionReadStream> subscribeStream(final String subject, final PushSubscribeOptions so, final int maxBuffered) {
+        final Promise<PushSubscriptionReadStream> promise = context().promise();
+        final Dispatcher dispatcher = conn.createDispatcher();
+        final PushSubscriptionReadStreamImpl stream = new PushSubscriptionReadStreamImpl(context(), conn, dispatcher, subject, maxBuffered, exceptionHandler);
         context().executeBlocking(evt -> {
             try {
-                final JetStreamSubscription jetStreamSubscription = subscriptionMap.get(subject);
-                if (jetStreamSubscription == null) {
-                    throw new IllegalStateException("Subscription not found " + subject);
-                }
-                final List<Message> messages = jetStreamSubscription.fetch(batchSize, maxWaitMillis);
-                promise.complete(NatsVertxMessageImpl.listOf(messages, context()));
+                js.subscribe(subject, dispatcher, stream::onMessage, false, so);
+                readers.add(stream);
+                promise.complete(stream);
             } catch (Exception e) {
+                conn.closeDispatcher(dispatcher);
                 handleException(promise, e);
             }
         }, false);
@@ -254,26 +433,80 @@ public class NatsStreamImpl extends NatsImpl implements NatsStream {
     }
 
     @Override
-    public Future<Iterator<NatsVertxMessage>> iterate(String subject, int batchSize, long maxWaitMillis) {
-        final Promise<Iterator<NatsVertxMessage>> promise = context().promise();
+    public Future<PartitionedProcessor> subscribePartitioned(final String subject, final PushSubscribeOptions so,
+                                                             final int partitionCount,
+                                                             final Function<NatsVertxMessage, String> keyMapper,
+                                                             final Function<NatsVertxMessage, Future<Void>> processor) {
+        final Promise<PartitionedProcessor> promise = context().promise();
+        final Dispatcher dispatcher = conn.createDispatcher();
+        final PartitionedProcessorImpl partitioned;
+        try {
+            partitioned = new PartitionedProcessorImpl(context(), conn, dispatcher, partitionCount, keyMapper, processor, exceptionHandler);
+        } catch (Exception e) {
+            conn.closeDispatcher(dispatcher);
+            handleException(promise, e);
+            return promise.future();
+        }
         context().executeBlocking(evt -> {
             try {
-                final JetStreamSubscription jetStreamSubscription = subscriptionMap.get(subject);
-                if (jetStreamSubscription == null) {
-                    throw new IllegalStateException("Subscription not found " + subject);
+                // known before the first message arrives, the ack floor of every delivery depends on it
+                partitioned.cumulative(ackPolicy(subject, so) == AckPolicy.All);
+                js.subscribe(subject, dispatcher, partitioned::onMessage, false, so);
+                readers.add(partitioned);
+                promise.complete(partitioned);
+            } catch (Exception e) {
+                conn.closeDispatcher(dispatcher);
+                handleException(promise, e);
+            }
+        }, false);
+        return promise.future();
+    }
+
+    /**
+     * The ack policy the subscription will have, the one of the consumer the options name if it exists,
+     * otherwise the one of the options. Blocking.
+     */
+    private AckPolicy ackPolicy(String subject, SubscribeOptions so) throws IOException, JetStreamApiException {
+        final String name = so == null ? null : so.getName() != null ? so.getName() : so.getDurable();
+        if (name != null) {
+            String stream = so.getStream();
+            if (stream == null) {
+                final List<String> streams = jsm.getStreamNames(subject);
+                stream = streams.isEmpty() ? null : streams.get(0);
+            }
+            if (stream != null) {
+                try {
+                    return jsm.getConsumerInfo(stream, name).getConsumerConfiguration().getAckPolicy();
                 }
-                final Iterator<Message> messages = jetStreamSubscription.iterate(batchSize, maxWaitMillis);
-                promise.complete(new Iterator<NatsVertxMessage>() {
-                    @Override
-                    public boolean hasNext() {
-                        return messages.hasNext();
+                catch (JetStreamApiException e) {
+                    if (e.getApiErrorCode() != JS_CONSUMER_NOT_FOUND_ERR) {
+                        throw e;
                     }
+                }
+            }
+        }
+        return so == null ? AckPolicy.Explicit : so.getConsumerConfiguration().getAckPolicy();
+    }
 
-                    @Override
-                    public NatsVertxMessage next() {
-                        return new NatsVertxMessageImpl(messages.next(), context());
-                    }
-                });
+    @Override
+    public Future<PullWorkers> pullWorkers(final String subject, final String durable, final int workerCount,
+                                           final int batchSize, final long maxWaitMillis,
+                                           final Handler<NatsVertxMessage> handler) {
+        final PullWorkersImpl workers = new PullWorkersImpl(conn, js, subject, durable, batchSize, maxWaitMillis, handler, exceptionHandler);
+        return workers.start(context(), workerCount)
+            .onSuccess(w -> readers.add(workers))
+            .onFailure(e -> exceptionHandler.get().handle(e));
+    }
+
+    @Override
+    public Future<ConsumerReadStream> consume(final String streamName, final String consumerName, final ConsumeOptions options) {
+        final Promise<ConsumerReadStream> promise = context().promise();
+        context().executeBlocking(evt -> {
+            try {
+                final ConsumerContext consumerContext = js.getConsumerContext(streamName, consumerName);
+                final ConsumerReadStreamImpl stream = new ConsumerReadStreamImpl(context(), conn, streamName, consumerContext, options, exceptionHandler);
+                readers.add(stream);
+                promise.complete(stream);
             } catch (Exception e) {
                 handleException(promise, e);
             }
@@ -281,25 +514,54 @@ public class NatsStreamImpl extends NatsImpl implements NatsStream {
         return promise.future();
     }
 
+    @Override
+    public Future<List<NatsVertxMessage>> fetch(final String subject, final int batchSize, final long maxWaitMillis) {
+        final SubscriptionReadStreamImpl subscriptionReadStream = subscriptionMap.get(subject);
+        if (subscriptionReadStream == null) {
+            final Promise<List<NatsVertxMessage>> promise = context().promise();
+            handleException(promise, new IllegalStateException("Subscription not found " + subject));
+            return promise.future();
+        }
+        return subscriptionReadStream.fetch(batchSize, maxWaitMillis);
+    }
+
+    @Override
+    public Future<Iterator<NatsVertxMessage>> iterate(String subject, int batchSize, long maxWaitMillis) {
+        return fetch(subject, batchSize, maxWaitMillis).map(List::iterator);
+    }
+
+
+    @Override
+    public ReadStream<NatsVertxMessage> iterateStream(String subject, int batchSize, long maxWaitMillis) {
+        final SubscriptionReadStreamImpl subscriptionReadStream = subscriptionMap.get(subject);
+        if (subscriptionReadStream == null) {
+            final PullBatchReadStream stream = new PullBatchReadStream(context(), null, null, null);
+            final Exception e = new IllegalStateException("Subscription not found " + subject);
+            stream.fail(e);
+            exceptionHandler.get().handle(e);
+            return stream;
+        }
+        return subscriptionReadStream.iterateStream(batchSize, maxWaitMillis);
+    }
 
     @Override
     public Future<Void> unsubscribe(final String subject) {
         final Promise<Void> promise = context().promise();
         context().executeBlocking(event -> {
             try {
-                final Dispatcher dispatcher = dispatcherMap.get(subject);
+                pushMetricsMap.keySet().removeIf(subscription -> subject.equals(subscription.getSubject()));
+                final Subscription pooled = pooledSubscriptionMap.remove(subject);
+                if (pooled != null) {
+                    // the dispatcher is shared, only this subscription goes
+                    pooled.getDispatcher().unsubscribe(pooled);
+                    promise.complete();
+                    return;
+                }
+                final Dispatcher dispatcher = dispatcherMap.remove(subject);
+                subscriptionMap.remove(subject);
                 if (dispatcher == null) {
-
-                    final JetStreamSubscription subscription = subscriptionMap.get(subject);
-                    if (subscription == null) {
-                        promise.fail("Subscription not found for unsubscribe op: " + subject);
-                    } else {
-                        subscription.unsubscribe();
-                        subscriptionMap.remove(subject);
-                        promise.complete();
-                    }
+                    promise.fail("Subscription not found for unsubscribe op: " + subject);
                 } else {
-                    dispatcherMap.remove(subject);
                     conn.closeDispatcher(dispatcher);
                     promise.complete();
                 }
@@ -310,6 +572,52 @@ public class NatsStreamImpl extends NatsImpl implements NatsStream {
         return promise.future();
     }
 
+    @Override
+    public Future<Void> drain(final Duration timeout) {
+        final ContextInternal context = context();
+        final List<Future<?>> drained = new ArrayList<>();
+        drained.add(publisher.whenIdle(context));
+        subscriptionMap.forEach((subject, rs) -> drained.add(rs.drain(timeout)));
+        final List<Drainable> drainables;
+        synchronized (readers) {
+            drainables = new ArrayList<>(readers);
+            readers.clear();
+        }
+        drainables.forEach(reader -> drained.add(reader.drain(timeout)));
+        // the pull subscriptions unsubscribe from their dispatchers, the push ones drain with theirs
+        return Future.join(drained).transform(ar -> context.<Void>executeBlocking(() -> {
+            final List<CompletableFuture<Boolean>> pushDrained = new ArrayList<>();
+            for (Map.Entry<String, Dispatcher> entry : dispatcherMap.entrySet()) {
+                if (subscriptionMap.containsKey(entry.getKey())) {
+                    conn.closeDispatcher(entry.getValue());
+                }
+                else {
+                    pushDrained.add(entry.getValue().drain(timeout));
+                }
+            }
+            for (Subscription pooled : pooledSubscriptionMap.values()) {
+                pushDrained.add(pooled.drain(timeout));
+            }
+            final CompletableFuture<Void> pushDone = CompletableFuture.allOf(pushDrained.toArray(new CompletableFuture<?>[0]));
+            if (timeout.isZero() || timeout.isNegative()) {
+                // like the dispatcher drain, no timeout waits until it is done
+                pushDone.get();
+            }
+            else {
+                // the dispatcher drains give up at the timeout, the extra second only guards against one that never completes
+                pushDone.get(timeout.toMillis() + DRAIN_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            dispatcherMap.clear();
+            subscriptionMap.clear();
+            pooledSubscriptionMap.clear();
+            pushMetricsMap.clear();
+            if (ar.failed()) {
+                throw new IllegalStateException("Drain failed", ar.cause());
+            }
+            return null;
+        }, false)).onFailure(e -> exceptionHandler.get().handle(e));
+    }
+
     public void handleException(Promise<?> promise, Exception e) {
         promise.fail(e);
         exceptionHandler.get().handle(e);
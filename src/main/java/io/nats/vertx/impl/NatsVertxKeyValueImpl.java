@@ -7,6 +7,9 @@ import io.nats.client.impl.NatsKeyValueWatchSubscription;
 import io.nats.client.impl.NatsMessage;
 import io.nats.client.support.DateTimeUtils;
 import io.nats.client.support.Validator;
+import io.nats.vertx.KeyValueNearCache;
+import io.nats.vertx.KeyValueReadStream;
+import io.nats.vertx.MaterializedKeyValue;
 import io.nats.vertx.NatsVertxKeyValue;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
@@ -14,10 +17,14 @@ import io.vertx.core.Vertx;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static io.nats.client.support.NatsConstants.GREATER_THAN;
 import static io.nats.client.support.NatsJetStreamConstants.*;
@@ -29,6 +36,9 @@ import static io.nats.client.support.Validator.*;
  */
 public class NatsVertxKeyValueImpl extends NatsImpl implements NatsVertxKeyValue {
 
+    // subjects per batch direct get, a longer key list is split into requests sent together
+    static final int MAX_BATCH_SUBJECTS = 256;
+
     // JNats KeyValue parallel variables
     private final String bucketName;
     private final String streamName;
@@ -36,6 +46,8 @@ public class NatsVertxKeyValueImpl extends NatsImpl implements NatsVertxKeyValue
     private final String readPrefix;
     private final String writePrefix;
     private final KeyValue kv;
+    private volatile KeyValueNearCacheImpl nearCache;
+    private Future<Boolean> allowDirect;
 
     /**
      * Create instance
@@ -111,7 +123,20 @@ public class NatsVertxKeyValueImpl extends NatsImpl implements NatsVertxKeyValue
      */
     @Override
     public Future<KeyValueEntry> get(String key) {
-        return _getFuture(key, null, true); // null indicates get last, not get revision
+        final KeyValueNearCacheImpl cache = nearCache;
+        if (cache == null) {
+            return _getFuture(key, null, true); // null indicates get last, not get revision
+        }
+        final KeyValueNearCacheImpl.Cached cached = cache.lookup(key, System.nanoTime());
+        if (cached != null) {
+            return context().succeededFuture(cached.entry == null ? null : resolveExistingOnly(cached.entry, true));
+        }
+        // deletes and purges are cached too, so the load asks for any operation
+        final long epoch = cache.epoch();
+        return _getFuture(key, null, false).map(kve -> {
+            cache.loaded(key, kve, epoch, System.nanoTime());
+            return kve == null ? null : resolveExistingOnly(kve, true);
+        });
     }
 
     /**
@@ -122,6 +147,155 @@ public class NatsVertxKeyValueImpl extends NatsImpl implements NatsVertxKeyValue
         return _getFuture(key, revision, true);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Future<Map<String, KeyValueEntry>> getMany(List<String> keys) {
+        final List<String> subjects = new ArrayList<>(keys.size());
+        try {
+            for (String key : keys) {
+                validateNonWildcardKvKeyRequired(key);
+                subjects.add(readSubject(key));
+            }
+        }
+        catch (IllegalArgumentException e) {
+            return context().failedFuture(e);
+        }
+        final DirectGet directGet = directGet();
+        final List<Future<List<MessageInfo>>> batches = new ArrayList<>();
+        for (int from = 0; from < subjects.size(); from += MAX_BATCH_SUBJECTS) {
+            final List<String> batch = subjects.subList(from, Math.min(subjects.size(), from + MAX_BATCH_SUBJECTS));
+            batches.add(directGet.multiLast(batch, batch.size()));
+        }
+        return Future.all(batches)
+            .map(cf -> {
+                final Map<String, KeyValueEntry> found = new HashMap<>();
+                for (int i = 0; i < batches.size(); i++) {
+                    found.putAll(toLiveEntries(cf.resultAt(i)));
+                }
+                final Map<String, KeyValueEntry> entries = new LinkedHashMap<>();
+                for (String key : keys) {
+                    final KeyValueEntry kve = found.get(key);
+                    if (kve != null) {
+                        entries.put(key, kve);
+                    }
+                }
+                return entries;
+            })
+            .recover(e -> e instanceof JetStreamApiException ? _getSeparately(keys) : failed(e));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Future<Map<String, KeyValueEntry>> getMany(String filter) {
+        final String subject = readSubject(filter);
+        return directGet().multiLast(Collections.singletonList(subject), 0)
+            .map(this::toLiveEntries)
+            .recover(e -> e instanceof JetStreamApiException ? _getScanned(subject) : failed(e));
+    }
+
+    private DirectGet directGet() {
+        return new DirectGet(context(), conn, jso.getPrefix(), streamName, timeout);
+    }
+
+    private Map<String, KeyValueEntry> toLiveEntries(List<MessageInfo> messages) {
+        final Map<String, KeyValueEntry> entries = new LinkedHashMap<>();
+        for (MessageInfo mi : messages) {
+            final KeyValueEntry kve = new KeyValueEntry(mi);
+            if (kve.getOperation() == KeyValueOperation.PUT) {
+                entries.put(kve.getKey(), kve);
+            }
+        }
+        return entries;
+    }
+
+    private <T> Future<T> failed(Throwable t) {
+        final Handler<Throwable> handler = exceptionHandler.get();
+        if (handler != null) {
+            handler.handle(t);
+        }
+        return context().failedFuture(t);
+    }
+
+    // the server does not answer batch gets, get the keys one by one, all at once
+    private Future<Map<String, KeyValueEntry>> _getSeparately(List<String> keys) {
+        final List<Future<KeyValueEntry>> gets = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            gets.add(get(key));
+        }
+        return Future.all(gets).map(cf -> {
+            final Map<String, KeyValueEntry> entries = new LinkedHashMap<>();
+            for (int i = 0; i < gets.size(); i++) {
+                final KeyValueEntry kve = cf.resultAt(i);
+                if (kve != null) {
+                    entries.put(keys.get(i), kve);
+                }
+            }
+            return entries;
+        });
+    }
+
+    // the server does not answer batch gets or has too many results for one, read the last entries from a consumer
+    private Future<Map<String, KeyValueEntry>> _getScanned(String subject) {
+        final Map<String, KeyValueEntry> entries = new LinkedHashMap<>();
+        return visitSubject(streamName, subject, DeliverPolicy.LastPerSubject, false, m -> {
+            final KeyValueEntry kve = new KeyValueEntry(m);
+            if (kve.getOperation() == KeyValueOperation.PUT) {
+                entries.put(kve.getKey(), kve);
+            }
+        }).map(v -> entries);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Future<KeyValueNearCache> nearCache(int maxEntries, Duration ttl) {
+        if (nearCache != null) {
+            return context().failedFuture(new IllegalStateException("Near cache is already enabled"));
+        }
+        final KeyValueNearCacheImpl cache;
+        try {
+            cache = new KeyValueNearCacheImpl(this, maxEntries, ttl);
+        }
+        catch (IllegalArgumentException e) {
+            return context().failedFuture(e);
+        }
+        return watchAll(cache, KeyValueWatchOption.UPDATES_ONLY).map(sub -> {
+            cache.subscription(sub);
+            nearCache = cache;
+            return cache;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Future<MaterializedKeyValue> materialize() {
+        final MaterializedKeyValueImpl replica = new MaterializedKeyValueImpl(this, context());
+        return watchAll(replica).compose(sub -> {
+            replica.subscription(sub);
+            return replica.loaded();
+        });
+    }
+
+    synchronized void nearCacheClosed(KeyValueNearCacheImpl cache) {
+        if (nearCache == cache) {
+            nearCache = null;
+        }
+    }
+
+    private void invalidate(String key) {
+        final KeyValueNearCacheImpl cache = nearCache;
+        if (cache != null) {
+            cache.invalidate(key);
+        }
+    }
+
     @Override
     public Future<Long> put(String key, byte[] value) {
         return publishData(key, value, null);
@@ -139,7 +313,7 @@ public class NatsVertxKeyValueImpl extends NatsImpl implements NatsVertxKeyValue
 
     @Override
     public Future<Long> create(String key, byte[] value) {
-        return executeUnorderedBlocking(() -> {
+        return this.<Long>executeUnorderedBlocking(() -> {
             try {
                 Headers h = new Headers().add(EXPECTED_LAST_SUB_SEQ_HDR, Long.toString(0));
                 return _publish(key, value, h).getSeqno();
@@ -155,7 +329,7 @@ public class NatsVertxKeyValueImpl extends NatsImpl implements NatsVertxKeyValue
                 }
                 throw e;
             }
-        });
+        }).onComplete(ar -> invalidate(key));
     }
 
     @Override
@@ -243,28 +417,40 @@ public class NatsVertxKeyValueImpl extends NatsImpl implements NatsVertxKeyValue
         return _keys(readSubjectFilters);
     }
 
+    @Override
+    public Future<KeyValueReadStream<String>> keysStream(List<String> filters, int maxBuffered) {
+        final List<String> readSubjectFilters = new ArrayList<>(filters.size());
+        for (String f : filters) {
+            readSubjectFilters.add(readSubject(f));
+        }
+        final SubjectReadStream<String> stream = new SubjectReadStream<>(context(), conn, js,
+            m -> getOperation(m.getHeaders()) == KeyValueOperation.PUT ? new BucketAndKey(m).key : null,
+            maxBuffered, exceptionHandler);
+        stream.idleTimeout(timeout);
+        return stream.start(streamName, readSubjectFilters, DeliverPolicy.LastPerSubject, true).map(s -> s);
+    }
+
     private Future<List<String>> _keys(List<String> readSubjectFilters) {
-        return executeUnorderedBlocking(() -> {
-            List<String> list = new ArrayList<>();
-            visitSubject(streamName, readSubjectFilters, DeliverPolicy.LastPerSubject, true, false, m -> {
-                KeyValueOperation op = getOperation(m.getHeaders());
-                if (op == KeyValueOperation.PUT) {
-                    list.add(new BucketAndKey(m).key);
-                }
-            });
-            return list;
-        });
+        final List<String> list = new ArrayList<>();
+        return visitSubject(streamName, readSubjectFilters, DeliverPolicy.LastPerSubject, true, m -> {
+            KeyValueOperation op = getOperation(m.getHeaders());
+            if (op == KeyValueOperation.PUT) {
+                list.add(new BucketAndKey(m).key);
+            }
+        }).map(v -> list);
     }
 
     @Override
     public Future<List<KeyValueEntry>> history(String key) {
-        return executeUnorderedBlocking(() -> {
+        try {
             validateNonWildcardKvKeyRequired(key);
-            List<KeyValueEntry> list = new ArrayList<>();
-            visitSubject(streamName, readSubject(key), DeliverPolicy.All, false, true,
-                m -> list.add(new KeyValueEntry(m)));
-            return list;
-        });
+        }
+        catch (IllegalArgumentException e) {
+            return failed(e);
+        }
+        final List<KeyValueEntry> list = new ArrayList<>();
+        return visitSubject(streamName, readSubject(key), DeliverPolicy.All, false,
+            m -> list.add(new KeyValueEntry(m))).map(v -> list);
     }
 
     @Override
@@ -274,36 +460,34 @@ public class NatsVertxKeyValueImpl extends NatsImpl implements NatsVertxKeyValue
 
     @Override
     public Future<Void> purgeDeletes(KeyValuePurgeOptions options) {
-        return executeUnorderedBlocking(() -> {
-            long dmThresh = options == null
-                ? KeyValuePurgeOptions.DEFAULT_THRESHOLD_MILLIS
-                : options.getDeleteMarkersThresholdMillis();
+        long dmThresh = options == null
+            ? KeyValuePurgeOptions.DEFAULT_THRESHOLD_MILLIS
+            : options.getDeleteMarkersThresholdMillis();
 
-            ZonedDateTime limit;
-            if (dmThresh < 0) {
-                limit = DateTimeUtils.fromNow(600000); // long enough in the future to clear all
-            }
-            else if (dmThresh == 0) {
-                limit = DateTimeUtils.fromNow(KeyValuePurgeOptions.DEFAULT_THRESHOLD_MILLIS);
-            }
-            else {
-                limit = DateTimeUtils.fromNow(-dmThresh);
-            }
+        ZonedDateTime limit;
+        if (dmThresh < 0) {
+            limit = DateTimeUtils.fromNow(600000); // long enough in the future to clear all
+        }
+        else if (dmThresh == 0) {
+            limit = DateTimeUtils.fromNow(KeyValuePurgeOptions.DEFAULT_THRESHOLD_MILLIS);
+        }
+        else {
+            limit = DateTimeUtils.fromNow(-dmThresh);
+        }
 
-            List<String> keep0List = new ArrayList<>();
-            List<String> keep1List = new ArrayList<>();
-            visitSubject(streamName, streamSubject, DeliverPolicy.LastPerSubject, true, false, m -> {
-                KeyValueEntry kve = new KeyValueEntry(m);
-                if (kve.getOperation() != KeyValueOperation.PUT) {
-                    if (kve.getCreated().isAfter(limit)) {
-                        keep1List.add(new BucketAndKey(m).key);
-                    }
-                    else {
-                        keep0List.add(new BucketAndKey(m).key);
-                    }
+        List<String> keep0List = new ArrayList<>();
+        List<String> keep1List = new ArrayList<>();
+        return visitSubject(streamName, streamSubject, DeliverPolicy.LastPerSubject, true, m -> {
+            KeyValueEntry kve = new KeyValueEntry(m);
+            if (kve.getOperation() != KeyValueOperation.PUT) {
+                if (kve.getCreated().isAfter(limit)) {
+                    keep1List.add(new BucketAndKey(m).key);
                 }
-            });
-
+                else {
+                    keep0List.add(new BucketAndKey(m).key);
+                }
+            }
+        }).compose(v -> keep0List.isEmpty() && keep1List.isEmpty() ? context().succeededFuture() : executeUnorderedBlocking(() -> {
             for (String key : keep0List) {
                 jsm.purgeStream(streamName, PurgeOptions.subject(readSubject(key)));
             }
@@ -317,7 +501,7 @@ public class NatsVertxKeyValueImpl extends NatsImpl implements NatsVertxKeyValue
             }
 
             return null;
-        });
+        }));
     }
 
     @Override
@@ -332,26 +516,93 @@ public class NatsVertxKeyValueImpl extends NatsImpl implements NatsVertxKeyValue
     }
 
     private Future<Long> publishData(String key, byte[] data, Headers h) {
-        return executeUnorderedBlocking(() -> _publish(key, data, h).getSeqno());
+        return executeUnorderedBlocking(() -> _publish(key, data, h).getSeqno())
+            .onComplete(ar -> invalidate(key));
     }
 
     private Future<Void> publishCommand(String key, Headers h) {
-        return executeUnorderedBlocking(() -> {
+        return this.<Void>executeUnorderedBlocking(() -> {
             _publish(key, null, h);
             return null;
-        });
+        }).onComplete(ar -> invalidate(key));
     }
 
-    @SuppressWarnings("SameParameterValue")
     Future<KeyValueEntry> _getFuture(String key, Long revision, boolean existingOnly) {
-        return executeUnorderedBlocking(() -> {
+        try {
             validateNonWildcardKvKeyRequired(key);
-            return revision == null
-                ? _getLastEntry(key, existingOnly)
-                : _getRevisionEntry(key, revision, existingOnly);
+        }
+        catch (IllegalArgumentException e) {
+            return failed(e);
+        }
+        return allowDirect().compose(direct -> {
+            if (!direct) {
+                return executeUnorderedBlocking(() -> revision == null
+                    ? _getLastEntry(key, existingOnly)
+                    : _getRevisionEntry(key, revision, existingOnly));
+            }
+            final Future<MessageInfo> read = revision == null
+                ? directGet().last(readSubject(key))
+                : directGet().sequence(revision);
+            return read
+                .recover(e -> {
+                    if (!DirectGet.isNoResponders(e)) {
+                        return context().failedFuture(e);
+                    }
+                    // no server answers direct gets, for instance after the stream config changed, ask the api
+                    noDirect();
+                    return _getFromApi(revision == null
+                        ? MessageGetRequest.lastForSubject(readSubject(key))
+                        : MessageGetRequest.forSequence(revision));
+                })
+                .<KeyValueEntry>map(mi -> {
+                    if (mi == null) {
+                        return null;
+                    }
+                    final KeyValueEntry kve = new KeyValueEntry(mi);
+                    return key.equals(kve.getKey()) ? resolveExistingOnly(kve, existingOnly) : null;
+                }).recover(this::failed);
         });
     }
 
+    // a message get through the stream api, the stream leader answers it
+    private Future<MessageInfo> _getFromApi(MessageGetRequest request) {
+        final String subject = jso.getPrefix() + String.format(JSAPI_MSG_GET, streamName);
+        return Future.fromCompletionStage(conn.requestWithTimeout(subject, request.serialize(), timeout), context())
+            .compose(m -> {
+                final MessageInfo mi = new MessageInfo(m, streamName, false);
+                if (mi.getApiErrorCode() == JS_NO_MESSAGE_FOUND_ERR) {
+                    return context().succeededFuture();
+                }
+                try {
+                    return context().succeededFuture(mi.throwOnHasError());
+                }
+                catch (JetStreamApiException e) {
+                    return context().failedFuture(e);
+                }
+            });
+    }
+
+    // the gets are direct when the bucket stream allows it, then any replica or a mirror can answer them
+    private synchronized Future<Boolean> allowDirect() {
+        if (allowDirect == null) {
+            final Future<Boolean> future = executeUnorderedBlocking(() -> jsm.getStreamInfo(streamName).getConfiguration().getAllowDirect());
+            future.onFailure(t -> {
+                synchronized (this) {
+                    if (allowDirect == future) {
+                        allowDirect = null;
+                    }
+                }
+            });
+            allowDirect = future;
+        }
+        return allowDirect;
+    }
+
+    // the next get looks at the stream config again
+    private synchronized void noDirect() {
+        allowDirect = null;
+    }
+
     private KeyValueEntry resolveExistingOnly(KeyValueEntry kve, boolean existingOnly) {
         return existingOnly && kve.getOperation() != KeyValueOperation.PUT ? null : kve;
     }
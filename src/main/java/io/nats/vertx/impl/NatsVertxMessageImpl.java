@@ -2,9 +2,14 @@ package io.nats.vertx.impl;
 
 import io.nats.client.Message;
 import io.nats.vertx.NatsVertxMessage;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.impl.ContextInternal;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 public class NatsVertxMessageImpl implements NatsVertxMessage {
@@ -13,12 +18,80 @@ public class NatsVertxMessageImpl implements NatsVertxMessage {
         return messages.stream().map(m -> new NatsVertxMessageImpl( m, contextInternal)).collect(Collectors.toList());
     }
 
+    public static List<NatsVertxMessage> listOf(List<Message> messages, ContextInternal contextInternal, AckBatcher ackBatcher) {
+        return listOf(messages, contextInternal, ackBatcher, null);
+    }
+
+    public static List<NatsVertxMessage> listOf(List<Message> messages, ContextInternal contextInternal, AckBatcher ackBatcher,
+                                                ConsumerMetricsRecorder metrics) {
+        return listOf(messages, contextInternal, ackBatcher, metrics, null);
+    }
+
+    public static List<NatsVertxMessage> listOf(List<Message> messages, ContextInternal contextInternal, AckBatcher ackBatcher,
+                                                ConsumerMetricsRecorder metrics, Handler<Message> settledHandler) {
+        if (ackBatcher == null && metrics == null && settledHandler == null) {
+            return listOf(messages, contextInternal);
+        }
+        final List<NatsVertxMessage> list = new ArrayList<>(messages.size());
+        for (Message m : messages) {
+            list.add(new NatsVertxMessageImpl(m, contextInternal, ackBatcher, metrics, settledHandler));
+        }
+        return list;
+    }
+
     private final Message event;
     private final ContextInternal contextInternal;
+    private final AckBatcher ackBatcher;
+    private final ConsumerMetricsRecorder metrics;
+    private final Handler<Message> settledHandler;
+    private final long handedOutNanos;
+    private boolean settled;
 
     public NatsVertxMessageImpl(Message event, ContextInternal contextInternal) {
+        this(event, contextInternal, null);
+    }
+
+    /**
+     * Create a message whose async acks go through the ack batcher of its subscription.
+     * @param event the message
+     * @param contextInternal the context
+     * @param ackBatcher the ack batcher, null to ack each message on its own
+     */
+    public NatsVertxMessageImpl(Message event, ContextInternal contextInternal, AckBatcher ackBatcher) {
+        this(event, contextInternal, ackBatcher, null);
+    }
+
+    /**
+     * Create a message whose async acks go through the ack batcher of its subscription
+     * and whose processing time, from now to its ack, nak or term, goes to the metrics of its subscription.
+     * @param event the message
+     * @param contextInternal the context
+     * @param ackBatcher the ack batcher, null to ack each message on its own
+     * @param metrics the metrics recorder, null if metrics are off
+     */
+    public NatsVertxMessageImpl(Message event, ContextInternal contextInternal, AckBatcher ackBatcher, ConsumerMetricsRecorder metrics) {
+        this(event, contextInternal, ackBatcher, metrics, null);
+    }
+
+    /**
+     * Create a message that also tells its subscription when it is acked, nak'd or terminated through this wrapper.
+     * @param event the message
+     * @param contextInternal the context
+     * @param ackBatcher the ack batcher, null to ack each message on its own
+     * @param metrics the metrics recorder, null if metrics are off
+     * @param settledHandler called with the message the first time it is settled, null if not needed
+     */
+    public NatsVertxMessageImpl(Message event, ContextInternal contextInternal, AckBatcher ackBatcher, ConsumerMetricsRecorder metrics,
+                                Handler<Message> settledHandler) {
         this.event = event;
         this.contextInternal = contextInternal;
+        this.ackBatcher = ackBatcher;
+        this.metrics = metrics;
+        this.settledHandler = settledHandler;
+        this.handedOutNanos = metrics == null ? 0 : System.nanoTime();
+        if (ackBatcher != null) {
+            ackBatcher.delivered(event);
+        }
     }
 
     @Override
@@ -30,4 +103,108 @@ public class NatsVertxMessageImpl implements NatsVertxMessage {
     public ContextInternal context() {
         return contextInternal;
     }
+
+    private void settled() {
+        if (settled) {
+            return;
+        }
+        settled = true;
+        if (metrics != null) {
+            metrics.processed(System.nanoTime() - handedOutNanos);
+            metrics.settled(event);
+        }
+        if (settledHandler != null) {
+            settledHandler.handle(event);
+        }
+    }
+
+    /**
+     * Settled without going through the ack batcher, the batcher still has to pass over the message
+     * or a cumulative ack would never get past it.
+     */
+    private void settledDirectly() {
+        settled();
+        if (ackBatcher != null) {
+            ackBatcher.settled(event);
+        }
+    }
+
+    @Override
+    public void ack() {
+        settledDirectly();
+        NatsVertxMessage.super.ack();
+    }
+
+    @Override
+    public void ackSync(Duration timeout) throws TimeoutException, InterruptedException {
+        settledDirectly();
+        NatsVertxMessage.super.ackSync(timeout);
+    }
+
+    @Override
+    public void ackAndForget() {
+        settled();
+        if (ackBatcher == null) {
+            NatsVertxMessage.super.ackAndForget();
+        }
+        else {
+            ackBatcher.ack(event).onFailure(contextInternal::reportException);
+        }
+    }
+
+    @Override
+    public void nak() {
+        settledDirectly();
+        NatsVertxMessage.super.nak();
+    }
+
+    @Override
+    public void nakWithDelay(Duration nakDelay) {
+        settledDirectly();
+        NatsVertxMessage.super.nakWithDelay(nakDelay);
+    }
+
+    @Override
+    public void nakWithDelay(long nakDelayMillis) {
+        settledDirectly();
+        NatsVertxMessage.super.nakWithDelay(nakDelayMillis);
+    }
+
+    @Override
+    public void term() {
+        settledDirectly();
+        NatsVertxMessage.super.term();
+    }
+
+    @Override
+    public Future<Void> ackAsync() {
+        settled();
+        return ackBatcher == null ? NatsVertxMessage.super.ackAsync() : ackBatcher.ack(event);
+    }
+
+    @Override
+    public Future<Void> ackWithDelayAsync(Duration ackDelay) {
+        settledDirectly();
+        return NatsVertxMessage.super.ackWithDelayAsync(ackDelay);
+    }
+
+    @Override
+    public Future<Void> nakAsync() {
+        settledDirectly();
+        return NatsVertxMessage.super.nakAsync();
+    }
+
+    @Override
+    public Future<Void> nakWithDelayAsync(Duration nakDelay) {
+        settledDirectly();
+        return NatsVertxMessage.super.nakWithDelayAsync(nakDelay);
+    }
+
+    @Override
+    public Future<Void> termAsync() {
+        settledDirectly();
+        return NatsVertxMessage.super.termAsync();
+    }
+
+    // inProgress and inProgressAsync only extend the ack wait, the message stays unsettled
 }
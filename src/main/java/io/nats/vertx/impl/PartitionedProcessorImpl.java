@@ -0,0 +1,404 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.Message;
+import io.nats.vertx.NatsVertxMessage;
+import io.nats.vertx.PartitionedProcessor;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.impl.ContextInternal;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Partitioned processor implementation, see {@link PartitionedProcessor}. A message goes to the partition
+ * of the hash of its key, where it is queued behind the messages of the same key. Deliveries are tracked
+ * in order, and once the head of the deliveries is done the ack floor moves past it: a cumulative consumer
+ * only acks the last message of the done prefix, an explicit one acks every message of the prefix in order.
+ * A failed message blocks its key until the server redelivers it, the messages of the key behind it are not processed:
+ * an explicit consumer naks the failed message and every later message of the key that arrives before the redelivery,
+ * a cumulative consumer, AckPolicy.All, holds them and the failed message holds the ack floor, so the server redelivers
+ * from the floor after the ack wait. Redeliveries of messages that are still tracked and not failed are ignored.
+ */
+public class PartitionedProcessorImpl implements PartitionedProcessor, Drainable {
+    private final Connection conn;
+    private final Dispatcher dispatcher;
+    private final Function<NatsVertxMessage, String> keyMapper;
+    private final Function<NatsVertxMessage, Future<Void>> processor;
+    private final AtomicReference<Handler<Throwable>> exceptionHandler;
+    private final Partition[] partitions;
+    private final ArrayDeque<Delivery> deliveries = new ArrayDeque<>();
+    private final Map<Long, Delivery> tracked = new HashMap<>();
+    private boolean cumulative;
+    private long ackFloor;
+    private long processed;
+    private long failed;
+    private boolean stopped;
+    private Promise<Void> stopPromise;
+
+    static class Partition {
+        final ContextInternal context;
+        final Map<String, KeyQueue> keys = new HashMap<>();
+
+        Partition(ContextInternal context) {
+            this.context = context;
+        }
+    }
+
+    /**
+     * The messages of one key, only used on the context of its partition.
+     */
+    static class KeyQueue {
+        final ArrayDeque<Delivery> queue = new ArrayDeque<>();
+        boolean running;
+        // the stream sequence of the failed message the key waits for, 0 if none
+        long blockedAt;
+    }
+
+    static class Delivery {
+        final long sequence;
+        Message message;
+        boolean done;
+        boolean failed;
+        boolean skipped;
+        boolean held;
+
+        Delivery(Message message) {
+            this.message = message;
+            this.sequence = message.metaData().streamSequence();
+        }
+    }
+
+    public PartitionedProcessorImpl(ContextInternal context, Connection conn, Dispatcher dispatcher, int partitionCount,
+                                    Function<NatsVertxMessage, String> keyMapper,
+                                    Function<NatsVertxMessage, Future<Void>> processor,
+                                    AtomicReference<Handler<Throwable>> exceptionHandler) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("Partition count must be at least 1");
+        }
+        this.conn = conn;
+        this.dispatcher = dispatcher;
+        this.keyMapper = keyMapper;
+        this.processor = processor;
+        this.exceptionHandler = exceptionHandler;
+        this.partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(context.owner().createEventLoopContext());
+        }
+    }
+
+    /**
+     * Set whether the consumer acks cumulatively, AckPolicy.All.
+     * @param cumulative true for a cumulative consumer
+     */
+    void cumulative(boolean cumulative) {
+        synchronized (this) {
+            this.cumulative = cumulative;
+        }
+    }
+
+    /**
+     * Called by the dispatcher for every message of the subscription.
+     * @param message the message
+     */
+    void onMessage(Message message) {
+        final Delivery delivery;
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            final Delivery existing = tracked.get(message.metaData().streamSequence());
+            if (existing == null) {
+                delivery = new Delivery(message);
+                deliveries.add(delivery);
+                tracked.put(delivery.sequence, delivery);
+            }
+            else if (existing.done && (existing.failed || existing.skipped)) {
+                // the redelivery of a message that was not processed yet keeps its place in the deliveries
+                delivery = existing;
+                delivery.message = message;
+                delivery.done = false;
+                delivery.failed = false;
+                delivery.skipped = false;
+            }
+            else {
+                // redelivered while it is in progress, held or done but not acked yet
+                return;
+            }
+        }
+        final Partition partition;
+        final String key;
+        try {
+            key = keyMapper.apply(new NatsVertxMessageImpl(message, partitions[0].context));
+            partition = partitions[Math.floorMod(key == null ? 0 : key.hashCode(), partitions.length)];
+        } catch (Exception e) {
+            completed(delivery, e);
+            return;
+        }
+        partition.context.runOnContext(v -> {
+            KeyQueue keyQueue = partition.keys.get(key);
+            if (keyQueue == null) {
+                keyQueue = new KeyQueue();
+                partition.keys.put(key, keyQueue);
+            }
+            if (keyQueue.blockedAt == 0) {
+                keyQueue.queue.add(delivery);
+            }
+            else if (delivery.sequence == keyQueue.blockedAt) {
+                // the failed message is back, it goes before the messages held behind it
+                keyQueue.blockedAt = 0;
+                keyQueue.queue.addFirst(delivery);
+            }
+            else if (isCumulative()) {
+                hold(delivery);
+                keyQueue.queue.add(delivery);
+            }
+            else {
+                skip(delivery);
+            }
+            next(partition, key, keyQueue);
+        });
+    }
+
+    /**
+     * Process the next message of a key unless one is running or the key is blocked. On the context of the partition.
+     */
+    private void next(Partition partition, String key, KeyQueue keyQueue) {
+        if (keyQueue.running || keyQueue.blockedAt != 0) {
+            return;
+        }
+        final Delivery delivery = keyQueue.queue.poll();
+        if (delivery == null) {
+            partition.keys.remove(key);
+            return;
+        }
+        final Message message;
+        synchronized (this) {
+            delivery.held = false;
+            message = delivery.message;
+        }
+        keyQueue.running = true;
+        process(new NatsVertxMessageImpl(message, partition.context)).onComplete(ar -> {
+            keyQueue.running = false;
+            if (ar.succeeded()) {
+                completed(delivery, null);
+            }
+            else if (isCumulative()) {
+                keyQueue.blockedAt = delivery.sequence;
+                keyQueue.queue.forEach(this::hold);
+                completed(delivery, ar.cause());
+            }
+            else {
+                // the key waits for the redelivery, the messages behind it are nak'd after it to follow it again
+                keyQueue.blockedAt = delivery.sequence;
+                completed(delivery, ar.cause());
+                Delivery queued;
+                while ((queued = keyQueue.queue.poll()) != null) {
+                    skip(queued);
+                }
+            }
+            next(partition, key, keyQueue);
+        });
+    }
+
+    private Future<Void> process(NatsVertxMessage message) {
+        try {
+            final Future<Void> future = processor.apply(message);
+            return future == null ? Future.succeededFuture() : future;
+        } catch (Exception e) {
+            return Future.failedFuture(e);
+        }
+    }
+
+    private synchronized boolean isCumulative() {
+        return cumulative;
+    }
+
+    private synchronized void hold(Delivery delivery) {
+        delivery.held = true;
+    }
+
+    /**
+     * Pass over a message of a blocked key without processing it, the nak brings it back after the failed one.
+     */
+    private void skip(Delivery delivery) {
+        final Message message;
+        synchronized (this) {
+            delivery.skipped = true;
+            message = delivery.message;
+        }
+        try {
+            message.nak();
+        } catch (Exception e) {
+            report(e);
+        }
+        settle(delivery);
+    }
+
+    private void completed(Delivery delivery, Throwable failure) {
+        final Message message;
+        synchronized (this) {
+            delivery.failed = failure != null;
+            message = delivery.message;
+            if (failure == null) {
+                processed++;
+            }
+            else {
+                failed++;
+            }
+        }
+        if (failure != null) {
+            if (!isCumulative()) {
+                try {
+                    message.nak();
+                } catch (Exception e) {
+                    report(e);
+                }
+            }
+            report(failure);
+        }
+        settle(delivery);
+    }
+
+    private void settle(Delivery delivery) {
+        final List<Message> acks = new ArrayList<>();
+        final boolean close;
+        synchronized (this) {
+            delivery.done = true;
+            Message last = null;
+            while (!deliveries.isEmpty() && deliveries.peek().done) {
+                final Delivery head = deliveries.peek();
+                if (head.failed && cumulative) {
+                    // the floor stays before the failed message
+                    break;
+                }
+                deliveries.poll();
+                tracked.remove(head.sequence);
+                if (!head.failed && !head.skipped) {
+                    if (cumulative) {
+                        last = head.message;
+                    }
+                    else {
+                        acks.add(head.message);
+                    }
+                    ackFloor = head.sequence;
+                }
+            }
+            if (last != null) {
+                acks.add(last);
+            }
+            close = stopped && stopPromise != null && idle();
+        }
+        for (Message message : acks) {
+            try {
+                message.ack();
+            } catch (Exception e) {
+                report(e);
+            }
+        }
+        if (close) {
+            stopPromise.tryComplete();
+        }
+    }
+
+    /**
+     * Whether no message is processing or queued to be processed, held messages wait for a redelivery.
+     */
+    private boolean idle() {
+        for (Delivery delivery : deliveries) {
+            if (!delivery.done && !delivery.held) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void report(Throwable t) {
+        final Handler<Throwable> handler = exceptionHandler.get();
+        if (handler != null) {
+            handler.handle(t);
+        }
+    }
+
+    @Override
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    @Override
+    public synchronized long getAckFloor() {
+        return ackFloor;
+    }
+
+    @Override
+    public synchronized int getPending() {
+        return deliveries.size();
+    }
+
+    @Override
+    public synchronized long getProcessed() {
+        return processed;
+    }
+
+    @Override
+    public synchronized long getFailed() {
+        return failed;
+    }
+
+    @Override
+    public Future<Void> stop() {
+        final Promise<Void> promise;
+        synchronized (this) {
+            if (stopPromise != null) {
+                return stopPromise.future();
+            }
+            stopped = true;
+            stopPromise = partitions[0].context.promise();
+            promise = stopPromise;
+        }
+        partitions[0].context.executeBlocking(() -> {
+            conn.closeDispatcher(dispatcher);
+            return null;
+        }, false).onComplete(ar -> {
+            if (ar.failed()) {
+                report(ar.cause());
+            }
+            synchronized (this) {
+                if (!idle()) {
+                    return;
+                }
+            }
+            promise.tryComplete();
+        });
+        return promise.future();
+    }
+
+    /**
+     * Stop, waiting at most the timeout for the work in flight.
+     * @param timeout the max time to wait
+     * @return future that completes once stopped or at the timeout
+     */
+    @Override
+    public Future<Void> drain(Duration timeout) {
+        final Future<Void> stopped = stop();
+        if (timeout.isZero() || timeout.isNegative()) {
+            return stopped;
+        }
+        final Promise<Void> promise = partitions[0].context.promise();
+        final long timerId = partitions[0].context.owner().setTimer(Math.max(1, timeout.toMillis()), id -> promise.tryComplete());
+        stopped.onComplete(ar -> {
+            partitions[0].context.owner().cancelTimer(timerId);
+            promise.tryComplete();
+        });
+        return promise.future();
+    }
+}
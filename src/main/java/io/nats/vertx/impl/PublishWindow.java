@@ -0,0 +1,64 @@
+package io.nats.vertx.impl;
+
+import java.time.Duration;
+
+/**
+ * Additive increase / multiplicative decrease window for publishes waiting for their ack.
+ * The window grows by about one per window of acks that come back within the latency target
+ * and is halved when an ack is late or times out. Only one decrease happens per window of publishes,
+ * the publishes that were already in flight when the window was cut do not cut it again.
+ * Not thread safe, the owner must synchronize.
+ */
+public class PublishWindow {
+    public static final int INITIAL_WINDOW = 32;
+
+    private final int maxWindow;
+    private final long targetNanos;
+    private double window;
+    private long recoverySeq = -1;
+
+    public PublishWindow(int maxWindow, Duration ackLatencyTarget) {
+        this.maxWindow = maxWindow;
+        this.targetNanos = ackLatencyTarget.toNanos();
+        this.window = Math.min(maxWindow, INITIAL_WINDOW);
+    }
+
+    /**
+     * The number of publishes that can currently be in flight.
+     * @return the limit
+     */
+    public int limit() {
+        return Math.max(1, (int) window);
+    }
+
+    /**
+     * An ack arrived.
+     * @param sendSeq the send sequence of the acked publish
+     * @param latencyNanos the time between the send and the ack
+     * @param lastSendSeq the send sequence of the last publish sent
+     */
+    public void onAck(long sendSeq, long latencyNanos, long lastSendSeq) {
+        if (latencyNanos <= targetNanos) {
+            window = Math.min(maxWindow, window + 1.0 / window);
+        }
+        else {
+            decrease(sendSeq, lastSendSeq);
+        }
+    }
+
+    /**
+     * A publish timed out waiting for its ack.
+     * @param sendSeq the send sequence of the publish
+     * @param lastSendSeq the send sequence of the last publish sent
+     */
+    public void onTimeout(long sendSeq, long lastSendSeq) {
+        decrease(sendSeq, lastSendSeq);
+    }
+
+    private void decrease(long sendSeq, long lastSendSeq) {
+        if (sendSeq > recoverySeq) {
+            window = Math.max(1, window / 2);
+            recoverySeq = lastSendSeq;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.Message;
+import io.nats.vertx.NatsVertxMessage;
+import io.vertx.core.Handler;
+import io.vertx.core.impl.ContextInternal;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.core.streams.impl.InboundBuffer;
+
+/**
+ * Read stream over the messages of one pull, the messages are passed on as they arrive
+ * and the stream ends once the batch is filled or the max wait passed.
+ * Messages are written from the thread of the dispatcher and moved to the context in order,
+ * the stream starts paused until a handler is set so no message is dropped.
+ */
+public class PullBatchReadStream implements ReadStream<NatsVertxMessage> {
+    private final ContextInternal context;
+    private final AckBatcher ackBatcher;
+    private final ConsumerMetricsRecorder metrics;
+    private final Handler<Message> settledHandler;
+    private final InboundBuffer<Object> buffer;
+    private Handler<NatsVertxMessage> handler;
+    private Handler<Void> endHandler;
+    private Handler<Throwable> exceptionHandler;
+
+    public PullBatchReadStream(ContextInternal context, AckBatcher ackBatcher, ConsumerMetricsRecorder metrics,
+                               Handler<Message> settledHandler) {
+        this.context = context;
+        this.ackBatcher = ackBatcher;
+        this.metrics = metrics;
+        this.settledHandler = settledHandler;
+        this.buffer = InboundBuffer.createPaused(context, Long.MAX_VALUE, null, this::handle);
+    }
+
+    void write(Message message) {
+        context.runOnContext(v -> buffer.write(message));
+    }
+
+    void end() {
+        context.runOnContext(v -> buffer.write(InboundBuffer.END_SENTINEL));
+    }
+
+    void fail(Throwable t) {
+        context.runOnContext(v -> {
+            final Handler<Throwable> h = exceptionHandler;
+            if (h != null) {
+                h.handle(t);
+            }
+            buffer.write(InboundBuffer.END_SENTINEL);
+        });
+    }
+
+    private void handle(Object element) {
+        if (element == InboundBuffer.END_SENTINEL) {
+            final Handler<Void> h = endHandler;
+            if (h != null) {
+                h.handle(null);
+            }
+        }
+        else {
+            final Handler<NatsVertxMessage> h = handler;
+            if (h != null) {
+                h.handle(new NatsVertxMessageImpl((Message) element, context, ackBatcher, metrics, settledHandler));
+            }
+        }
+    }
+
+    @Override
+    public PullBatchReadStream exceptionHandler(Handler<Throwable> handler) {
+        this.exceptionHandler = handler;
+        buffer.exceptionHandler(handler);
+        return this;
+    }
+
+    @Override
+    public PullBatchReadStream handler(Handler<NatsVertxMessage> handler) {
+        this.handler = handler;
+        if (handler != null) {
+            buffer.resume();
+        }
+        return this;
+    }
+
+    @Override
+    public PullBatchReadStream pause() {
+        buffer.pause();
+        return this;
+    }
+
+    @Override
+    public PullBatchReadStream resume() {
+        buffer.resume();
+        return this;
+    }
+
+    @Override
+    public PullBatchReadStream fetch(long amount) {
+        buffer.fetch(amount);
+        return this;
+    }
+
+    @Override
+    public PullBatchReadStream endHandler(Handler<Void> endHandler) {
+        this.endHandler = endHandler;
+        return this;
+    }
+}
@@ -0,0 +1,179 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.NUID;
+import io.nats.vertx.NatsVertxMessage;
+import io.nats.vertx.PullProcessor;
+import io.nats.vertx.SubscriptionReadStream;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.impl.ContextInternal;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pull processor implementation, see {@link PullProcessor}. The work runs on a worker executor with a pool
+ * of the given parallelism. A fetch is issued when the messages in flight drop to the refetch level,
+ * for the room left up to the batch size, so at most a batch of messages is in flight.
+ */
+public class PullProcessorImpl implements PullProcessor {
+    private final ContextInternal context;
+    private final SubscriptionReadStream stream;
+    private final int batchSize;
+    private final long maxWaitMillis;
+    private final int refetchLevel;
+    private final Handler<NatsVertxMessage> work;
+    private final WorkerExecutor executor;
+    private final AtomicReference<Handler<Throwable>> exceptionHandler;
+    private int inFlight;
+    private long processed;
+    private long failed;
+    private boolean fetching;
+    private boolean stopped;
+    private Promise<Void> stopPromise;
+
+    /**
+     * Create a processor, call start to begin fetching.
+     * @param context the context of the subscription
+     * @param stream the subscription read stream
+     * @param batchSize the max messages in flight and the max size of a fetch
+     * @param maxWaitMillis the max wait of a fetch
+     * @param parallelism the number of worker threads
+     * @param refetchRatio the part of a batch that must be done before the next fetch, between 0 and 1
+     * @param work the work, runs on a worker thread
+     * @param exceptionHandler the exception handler
+     */
+    public PullProcessorImpl(ContextInternal context, SubscriptionReadStream stream, int batchSize, long maxWaitMillis,
+                             int parallelism, double refetchRatio, Handler<NatsVertxMessage> work,
+                             AtomicReference<Handler<Throwable>> exceptionHandler) {
+        if (batchSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("Batch size and parallelism must be at least 1");
+        }
+        this.context = context;
+        this.stream = stream;
+        this.batchSize = batchSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.refetchLevel = (int) (batchSize * (1 - Math.min(1, Math.max(0, refetchRatio))));
+        this.work = work;
+        this.exceptionHandler = exceptionHandler;
+        this.executor = context.owner().createSharedWorkerExecutor("nats-pull-processor-" + NUID.nextGlobal(), parallelism);
+    }
+
+    public PullProcessorImpl start() {
+        context.runOnContext(v -> fetchMore());
+        return this;
+    }
+
+    @Override
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    @Override
+    public synchronized long getProcessed() {
+        return processed;
+    }
+
+    @Override
+    public synchronized long getFailed() {
+        return failed;
+    }
+
+    @Override
+    public Future<Void> stop() {
+        final boolean done;
+        synchronized (this) {
+            if (stopPromise != null) {
+                return stopPromise.future();
+            }
+            stopped = true;
+            stopPromise = context.promise();
+            done = inFlight == 0 && !fetching;
+        }
+        if (done) {
+            close();
+        }
+        return stopPromise.future();
+    }
+
+    private void fetchMore() {
+        final int room;
+        synchronized (this) {
+            if (stopped || fetching || inFlight > refetchLevel) {
+                return;
+            }
+            fetching = true;
+            room = batchSize - inFlight;
+        }
+        stream.fetch(room, maxWaitMillis).onComplete(ar -> {
+            final boolean close;
+            synchronized (this) {
+                fetching = false;
+                if (ar.succeeded()) {
+                    inFlight += ar.result().size();
+                }
+                close = stopped && inFlight == 0;
+            }
+            if (ar.succeeded()) {
+                process(ar.result());
+            }
+            if (close) {
+                close();
+            }
+            else if (ar.succeeded()) {
+                fetchMore();
+            }
+            else {
+                // the failure went to the exception handler already, try again after the max wait
+                context.owner().setTimer(Math.max(1, maxWaitMillis), id -> fetchMore());
+            }
+        });
+    }
+
+    private void process(List<NatsVertxMessage> messages) {
+        for (NatsVertxMessage message : messages) {
+            executor.executeBlocking(() -> {
+                work.handle(message);
+                return null;
+            }, false).onComplete(ar -> {
+                if (ar.succeeded()) {
+                    message.ackAsync();
+                }
+                else {
+                    message.nakAsync();
+                    final Handler<Throwable> handler = exceptionHandler.get();
+                    if (handler != null) {
+                        handler.handle(ar.cause());
+                    }
+                }
+                done(ar.succeeded());
+            });
+        }
+    }
+
+    private void done(boolean succeeded) {
+        final boolean close;
+        synchronized (this) {
+            inFlight--;
+            if (succeeded) {
+                processed++;
+            }
+            else {
+                failed++;
+            }
+            close = stopped && inFlight == 0 && !fetching;
+        }
+        if (close) {
+            close();
+        }
+        else {
+            fetchMore();
+        }
+    }
+
+    private void close() {
+        executor.close().onComplete(ar -> stopPromise.tryComplete());
+    }
+}
@@ -0,0 +1,203 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.JetStream;
+import io.nats.client.JetStreamSubscription;
+import io.nats.client.PullSubscribeOptions;
+import io.nats.vertx.NatsVertxMessage;
+import io.nats.vertx.PullWorkers;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.impl.ContextInternal;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pull workers implementation, see {@link PullWorkers}. Every worker gets a new event loop context,
+ * so the workers are spread over the event loops, with its own dispatcher, created on that context,
+ * and subscription read stream.
+ * The fetch loop of a worker runs on its context and hands the messages of a batch to the handler
+ * before fetching the next one. A drain lets the workers finish the batch in hand without fetching another,
+ * then drains their read streams.
+ */
+public class PullWorkersImpl implements PullWorkers, Drainable {
+    private final Connection conn;
+    private final JetStream js;
+    private final String subject;
+    private final String durable;
+    private final int batchSize;
+    private final long maxWaitMillis;
+    private final Handler<NatsVertxMessage> handler;
+    private final AtomicReference<Handler<Throwable>> exceptionHandler;
+    private final List<Worker> workers = new ArrayList<>();
+    private final AtomicLong fetches = new AtomicLong();
+    private final AtomicLong emptyFetches = new AtomicLong();
+    private final AtomicLong messages = new AtomicLong();
+    private volatile boolean stopped;
+    private volatile boolean draining;
+
+    static class Worker {
+        final ContextInternal context;
+        final Dispatcher dispatcher;
+        final SubscriptionReadStreamImpl stream;
+
+        Worker(ContextInternal context, Dispatcher dispatcher, SubscriptionReadStreamImpl stream) {
+            this.context = context;
+            this.dispatcher = dispatcher;
+            this.stream = stream;
+        }
+    }
+
+    public PullWorkersImpl(Connection conn, JetStream js, String subject, String durable, int batchSize,
+                           long maxWaitMillis, Handler<NatsVertxMessage> handler,
+                           AtomicReference<Handler<Throwable>> exceptionHandler) {
+        this.conn = conn;
+        this.js = js;
+        this.subject = subject;
+        this.durable = durable;
+        this.batchSize = batchSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.handler = handler;
+        this.exceptionHandler = exceptionHandler;
+    }
+
+    /**
+     * Subscribe the workers one after the other, the first one creates the consumer if it does not exist,
+     * then start their fetch loops.
+     * @param context the context to subscribe from
+     * @param workerCount the number of workers
+     * @return future of this once all the workers are subscribed
+     */
+    public Future<PullWorkers> start(ContextInternal context, int workerCount) {
+        if (workerCount < 1) {
+            return context.failedFuture(new IllegalArgumentException("Worker count must be at least 1"));
+        }
+        Future<Void> subscribed = context.succeededFuture();
+        for (int i = 0; i < workerCount; i++) {
+            subscribed = subscribed.compose(v -> subscribeWorker(context));
+        }
+        return subscribed.<PullWorkers>map(v -> {
+            for (Worker worker : workers) {
+                worker.context.runOnContext(x -> fetchLoop(worker));
+            }
+            return this;
+        }).recover(e -> stop().transform(ar -> context.failedFuture(e)));
+    }
+
+    private Future<Void> subscribeWorker(ContextInternal context) {
+        final ContextInternal workerContext = context.owner().createEventLoopContext();
+        // a dispatcher delivers on the context it is created from, the messages of the worker go to its own context
+        final Promise<Dispatcher> created = workerContext.promise();
+        workerContext.runOnContext(v -> created.complete(conn.createDispatcher()));
+        return created.future().compose(dispatcher -> subscribeWorker(context, workerContext, dispatcher));
+    }
+
+    private Future<Void> subscribeWorker(ContextInternal context, ContextInternal workerContext, Dispatcher dispatcher) {
+        final SubscriptionReadStreamImpl stream = new SubscriptionReadStreamImpl(workerContext, exceptionHandler);
+        return context.executeBlocking(() -> {
+            try {
+                final PullSubscribeOptions pso = PullSubscribeOptions.builder().durable(durable).build();
+                final JetStreamSubscription subscription = js.subscribe(subject, dispatcher, stream::onMessage, pso);
+                stream.ackPolicy(subscription.getConsumerInfo().getConsumerConfiguration().getAckPolicy());
+                stream.subscription(subscription);
+            } catch (Exception e) {
+                conn.closeDispatcher(dispatcher);
+                throw e;
+            }
+            synchronized (workers) {
+                workers.add(new Worker(workerContext, dispatcher, stream));
+            }
+            return null;
+        }, false);
+    }
+
+    private void fetchLoop(Worker worker) {
+        if (stopped || draining) {
+            return;
+        }
+        worker.stream.fetch(batchSize, maxWaitMillis).onComplete(ar -> {
+            if (ar.failed()) {
+                // already reported by the stream, try again after the max wait
+                worker.context.owner().setTimer(Math.max(1, maxWaitMillis), id -> fetchLoop(worker));
+                return;
+            }
+            fetches.incrementAndGet();
+            if (ar.result().isEmpty()) {
+                emptyFetches.incrementAndGet();
+            }
+            for (NatsVertxMessage message : ar.result()) {
+                if (stopped) {
+                    return;
+                }
+                messages.incrementAndGet();
+                try {
+                    handler.handle(message);
+                } catch (Throwable t) {
+                    worker.context.reportException(t);
+                }
+            }
+            fetchLoop(worker);
+        });
+    }
+
+    @Override
+    public int getWorkerCount() {
+        synchronized (workers) {
+            return workers.size();
+        }
+    }
+
+    @Override
+    public long getFetches() {
+        return fetches.get();
+    }
+
+    @Override
+    public long getEmptyFetches() {
+        return emptyFetches.get();
+    }
+
+    @Override
+    public long getMessages() {
+        return messages.get();
+    }
+
+    @Override
+    public Future<Void> stop() {
+        stopped = true;
+        final List<Future<Void>> closed = new ArrayList<>();
+        synchronized (workers) {
+            for (Worker worker : workers) {
+                closed.add(worker.context.executeBlocking(() -> {
+                    conn.closeDispatcher(worker.dispatcher);
+                    return null;
+                }, false));
+            }
+            workers.clear();
+        }
+        return Future.all(closed).mapEmpty();
+    }
+
+    @Override
+    public Future<Void> drain(Duration timeout) {
+        draining = true;
+        final List<Future<Void>> drained = new ArrayList<>();
+        synchronized (workers) {
+            for (Worker worker : workers) {
+                // the stream unsubscribes once the messages handed out are settled, then the dispatcher goes
+                drained.add(worker.stream.drain(timeout).transform(ar -> worker.context.<Void>executeBlocking(() -> {
+                    conn.closeDispatcher(worker.dispatcher);
+                    return null;
+                }, false)));
+            }
+            workers.clear();
+        }
+        return Future.all(drained).mapEmpty();
+    }
+}
@@ -0,0 +1,180 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.Message;
+import io.nats.client.impl.VertxDispatcher;
+import io.nats.vertx.NatsVertxMessage;
+import io.nats.vertx.PushSubscriptionReadStream;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.impl.ContextInternal;
+import io.vertx.core.streams.impl.InboundBuffer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Push subscription read stream, see {@link PushSubscriptionReadStream}. Messages from the dispatcher
+ * are written to an inbound buffer on the context. When a write finds the buffer full the dispatcher
+ * holds further deliveries, and the drain handler of the buffer resumes them.
+ * A drain drains the dispatcher, then waits for the buffer to be handled before the stream ends.
+ */
+public class PushSubscriptionReadStreamImpl implements PushSubscriptionReadStream, Drainable {
+    static final long DRAIN_CHECK_MILLIS = 10;
+
+    private final ContextInternal context;
+    private final Connection conn;
+    private final Dispatcher dispatcher;
+    private final String subject;
+    private final AtomicReference<Handler<Throwable>> exceptionHandler;
+    private final InboundBuffer<NatsVertxMessage> buffer;
+    private Handler<Void> endHandler;
+    private volatile boolean ended;
+
+    public PushSubscriptionReadStreamImpl(ContextInternal context, Connection conn, Dispatcher dispatcher, String subject,
+                                          int maxBuffered, AtomicReference<Handler<Throwable>> exceptionHandler) {
+        this.context = context;
+        this.conn = conn;
+        this.dispatcher = dispatcher;
+        this.subject = subject;
+        this.exceptionHandler = exceptionHandler;
+        this.buffer = new InboundBuffer<>(context, maxBuffered);
+        this.buffer.pause();
+        this.buffer.drainHandler(v -> {
+            if (dispatcher instanceof VertxDispatcher) {
+                ((VertxDispatcher) dispatcher).resumeDelivery();
+            }
+        });
+    }
+
+    /**
+     * Called by the dispatcher for every message of the subscription.
+     * @param message the message
+     */
+    void onMessage(Message message) {
+        context.runOnContext(v -> {
+            if (ended) {
+                return;
+            }
+            if (!buffer.write(new NatsVertxMessageImpl(message, context)) && dispatcher instanceof VertxDispatcher) {
+                ((VertxDispatcher) dispatcher).pauseDelivery();
+            }
+        });
+    }
+
+    @Override
+    public String getSubject() {
+        return subject;
+    }
+
+    @Override
+    public boolean isDeliveryPaused() {
+        return dispatcher instanceof VertxDispatcher && ((VertxDispatcher) dispatcher).isDeliveryPaused();
+    }
+
+    @Override
+    public Future<Void> unsubscribe() {
+        ended = true;
+        buffer.clear();
+        return context.<Void>executeBlocking(() -> {
+            conn.closeDispatcher(dispatcher);
+            return null;
+        }, false).onComplete(ar -> {
+            if (ar.failed()) {
+                exceptionHandler.get().handle(ar.cause());
+            }
+            final Handler<Void> handler = endHandler;
+            if (handler != null) {
+                handler.handle(null);
+            }
+        });
+    }
+
+    @Override
+    public Future<Void> drain(Duration timeout) {
+        if (ended) {
+            return context.succeededFuture();
+        }
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        final Promise<Void> promise = context.promise();
+        context.<Void>executeBlocking(() -> {
+            if (timeout.isZero() || timeout.isNegative()) {
+                dispatcher.drain(timeout).get();
+            }
+            else {
+                dispatcher.drain(timeout).get(timeout.toMillis() + NatsStreamImpl.DRAIN_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            return null;
+        }, false).onComplete(ar -> {
+            if (ar.failed()) {
+                exceptionHandler.get().handle(ar.cause());
+            }
+            awaitHandled(deadline, promise);
+        });
+        return promise.future();
+    }
+
+    /**
+     * Waits until the buffered messages are handled or the deadline passed, then ends the stream.
+     * The dispatcher is drained, it is closed already.
+     */
+    private void awaitHandled(long deadline, Promise<Void> promise) {
+        if (ended) {
+            promise.tryComplete();
+        }
+        else if (buffer.isEmpty() || System.nanoTime() - deadline >= 0) {
+            ended = true;
+            buffer.clear();
+            final Handler<Void> handler = endHandler;
+            if (handler != null) {
+                handler.handle(null);
+            }
+            promise.tryComplete();
+        }
+        else {
+            context.owner().setTimer(DRAIN_CHECK_MILLIS, id -> context.runOnContext(v -> awaitHandled(deadline, promise)));
+        }
+    }
+
+    @Override
+    public PushSubscriptionReadStream exceptionHandler(Handler<Throwable> handler) {
+        buffer.exceptionHandler(handler);
+        return this;
+    }
+
+    @Override
+    public PushSubscriptionReadStream handler(Handler<NatsVertxMessage> handler) {
+        buffer.handler(handler);
+        if (handler != null) {
+            buffer.resume();
+        }
+        return this;
+    }
+
+    @Override
+    public PushSubscriptionReadStream pause() {
+        buffer.pause();
+        return this;
+    }
+
+    @Override
+    public PushSubscriptionReadStream resume() {
+        buffer.resume();
+        return this;
+    }
+
+    @Override
+    public PushSubscriptionReadStream fetch(long amount) {
+        buffer.fetch(amount);
+        return this;
+    }
+
+    @Override
+    public PushSubscriptionReadStream endHandler(Handler<Void> endHandler) {
+        this.endHandler = endHandler;
+        return this;
+    }
+}
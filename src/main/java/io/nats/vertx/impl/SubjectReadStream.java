@@ -0,0 +1,265 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.JetStream;
+import io.nats.client.JetStreamSubscription;
+import io.nats.client.Message;
+import io.nats.client.PushSubscribeOptions;
+import io.nats.client.api.AckPolicy;
+import io.nats.client.api.ConsumerConfiguration;
+import io.nats.client.api.ConsumerInfo;
+import io.nats.client.api.DeliverPolicy;
+import io.nats.client.impl.VertxDispatcher;
+import io.nats.vertx.KeyValueReadStream;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.impl.ContextInternal;
+import io.vertx.core.streams.impl.InboundBuffer;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Read stream over the messages of stream subjects, see {@link KeyValueReadStream}. An ordered push consumer
+ * delivers through its own dispatcher, the messages are mapped on the context and written to an inbound buffer.
+ * A full buffer pauses the dispatcher and the drain handler of the buffer resumes it. The stream ends on the
+ * message whose metadata shows nothing pending, or right away when the consumer starts with nothing to deliver.
+ * @param <T> the type of the items, the mapper returns null for messages that are passed over
+ */
+public class SubjectReadStream<T> implements KeyValueReadStream<T> {
+    private final ContextInternal context;
+    private final Connection conn;
+    private final JetStream js;
+    private final Dispatcher dispatcher;
+    private final Function<Message, T> mapper;
+    private final AtomicReference<Handler<Throwable>> exceptionHandler;
+    private final InboundBuffer<Object> buffer;
+    private Handler<T> handler;
+    private Handler<Void> endHandler;
+    private Handler<Throwable> streamExceptionHandler;
+    private boolean ended;
+    private long idleTimeoutNanos;
+    private long lastActivity;
+    private long idleTimerId = -1;
+
+    public SubjectReadStream(ContextInternal context, Connection conn, JetStream js, Function<Message, T> mapper,
+                             int maxBuffered, AtomicReference<Handler<Throwable>> exceptionHandler) {
+        this.context = context;
+        this.conn = conn;
+        this.js = js;
+        this.dispatcher = conn.createDispatcher();
+        this.mapper = mapper;
+        this.exceptionHandler = exceptionHandler;
+        this.buffer = new InboundBuffer<>(context, maxBuffered);
+        this.buffer.pause();
+        this.buffer.handler(this::handle);
+        this.buffer.drainHandler(v -> {
+            if (dispatcher instanceof VertxDispatcher) {
+                ((VertxDispatcher) dispatcher).resumeDelivery();
+            }
+        });
+    }
+
+    /**
+     * Create the consumer, the only blocking step. The stream starts buffering right away
+     * and passes the items on once a handler is set.
+     * @param streamName the stream
+     * @param subjects the filter subjects
+     * @param deliverPolicy the deliver policy
+     * @param headersOnly whether the messages are read without their data
+     * @return future that completes with the stream once the consumer is created
+     */
+    public Future<SubjectReadStream<T>> start(String streamName, List<String> subjects, DeliverPolicy deliverPolicy, boolean headersOnly) {
+        final ConsumerConfiguration cc = ConsumerConfiguration.builder()
+            .ackPolicy(AckPolicy.None)
+            .deliverPolicy(deliverPolicy)
+            .headersOnly(headersOnly)
+            .filterSubjects(subjects)
+            .build();
+        final PushSubscribeOptions pso = PushSubscribeOptions.builder()
+            .stream(streamName)
+            .ordered(true)
+            .configuration(cc)
+            .build();
+        return context.<SubjectReadStream<T>>executeBlocking(() -> {
+            final JetStreamSubscription sub = js.subscribe(null, dispatcher, this::onMessage, false, pso);
+            final ConsumerInfo ci = sub.getConsumerInfo();
+            final boolean empty = ci.getCalculatedPending() == 0 && ci.getDelivered().getConsumerSequence() == 0;
+            if (empty) {
+                context.runOnContext(v -> end());
+            }
+            return this;
+        }, false).onSuccess(v -> lastActivity = System.nanoTime()).onFailure(t -> {
+            conn.closeDispatcher(dispatcher);
+            handleException(t);
+        });
+    }
+
+    /**
+     * Fail the stream with an IOException when no message arrives for the timeout, for instance when the consumer
+     * reported messages pending that never come. The time only counts while the stream takes messages,
+     * a stream paused by its reader or holding the delivery on a full buffer does not time out. Called on the context.
+     * @param timeout the max time between messages
+     * @return this stream
+     */
+    SubjectReadStream<T> idleTimeout(Duration timeout) {
+        idleTimeoutNanos = timeout.toNanos();
+        lastActivity = System.nanoTime();
+        scheduleIdleCheck(timeout.toMillis());
+        return this;
+    }
+
+    private void scheduleIdleCheck(long delayMillis) {
+        idleTimerId = context.owner().setTimer(Math.max(1, delayMillis), id -> context.runOnContext(v -> checkIdle()));
+    }
+
+    private void checkIdle() {
+        if (ended) {
+            return;
+        }
+        if (isHeld()) {
+            // the reader holds back the messages, the timeout starts over once it takes them again
+            lastActivity = System.nanoTime();
+            scheduleIdleCheck(TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos));
+            return;
+        }
+        final long idle = System.nanoTime() - lastActivity;
+        if (idle < idleTimeoutNanos) {
+            scheduleIdleCheck(TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos - idle));
+            return;
+        }
+        final Handler<Throwable> h = streamExceptionHandler;
+        if (h != null) {
+            h.handle(new IOException("Timeout or no response waiting for NATS JetStream server"));
+        }
+        cancel();
+    }
+
+    private boolean isHeld() {
+        return buffer.isPaused() || (dispatcher instanceof VertxDispatcher && ((VertxDispatcher) dispatcher).isDeliveryPaused());
+    }
+
+    private void onMessage(Message message) {
+        context.runOnContext(v -> {
+            if (ended) {
+                return;
+            }
+            lastActivity = System.nanoTime();
+            final T item = mapper.apply(message);
+            if (item != null && !buffer.write(item) && dispatcher instanceof VertxDispatcher) {
+                ((VertxDispatcher) dispatcher).pauseDelivery();
+            }
+            if (message.metaData().pendingCount() == 0) {
+                end();
+            }
+        });
+    }
+
+    private void end() {
+        if (ended) {
+            return;
+        }
+        ended = true;
+        cancelIdleCheck();
+        buffer.write(InboundBuffer.END_SENTINEL);
+        close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void handle(Object element) {
+        if (element == InboundBuffer.END_SENTINEL) {
+            final Handler<Void> h = endHandler;
+            if (h != null) {
+                h.handle(null);
+            }
+        }
+        else {
+            final Handler<T> h = handler;
+            if (h != null) {
+                h.handle((T) element);
+            }
+        }
+    }
+
+    @Override
+    public Future<Void> cancel() {
+        if (ended) {
+            return context.succeededFuture();
+        }
+        ended = true;
+        cancelIdleCheck();
+        buffer.clear();
+        buffer.write(InboundBuffer.END_SENTINEL);
+        buffer.resume();
+        return close();
+    }
+
+    private void cancelIdleCheck() {
+        if (idleTimerId != -1) {
+            context.owner().cancelTimer(idleTimerId);
+            idleTimerId = -1;
+        }
+    }
+
+    private Future<Void> close() {
+        return context.<Void>executeBlocking(() -> {
+            conn.closeDispatcher(dispatcher);
+            return null;
+        }, false).onFailure(this::handleException);
+    }
+
+    private void handleException(Throwable t) {
+        final Handler<Throwable> handler = exceptionHandler.get();
+        if (handler != null) {
+            handler.handle(t);
+        }
+    }
+
+    @Override
+    public SubjectReadStream<T> exceptionHandler(Handler<Throwable> handler) {
+        this.streamExceptionHandler = handler;
+        buffer.exceptionHandler(handler);
+        return this;
+    }
+
+    @Override
+    public SubjectReadStream<T> handler(Handler<T> handler) {
+        this.handler = handler;
+        if (handler != null) {
+            lastActivity = System.nanoTime();
+            buffer.resume();
+        }
+        return this;
+    }
+
+    @Override
+    public SubjectReadStream<T> pause() {
+        buffer.pause();
+        return this;
+    }
+
+    @Override
+    public SubjectReadStream<T> resume() {
+        lastActivity = System.nanoTime();
+        buffer.resume();
+        return this;
+    }
+
+    @Override
+    public SubjectReadStream<T> fetch(long amount) {
+        lastActivity = System.nanoTime();
+        buffer.fetch(amount);
+        return this;
+    }
+
+    @Override
+    public SubjectReadStream<T> endHandler(Handler<Void> endHandler) {
+        this.endHandler = endHandler;
+        return this;
+    }
+}
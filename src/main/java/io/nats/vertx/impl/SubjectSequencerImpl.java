@@ -0,0 +1,156 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.Message;
+import io.nats.client.api.PublishAck;
+import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsMessage;
+import io.nats.vertx.SubjectSequencer;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.nats.client.support.NatsJetStreamConstants.EXPECTED_LAST_SUB_SEQ_HDR;
+
+/**
+ * Subject sequencer implementation, see {@link SubjectSequencer}.
+ */
+public class SubjectSequencerImpl implements SubjectSequencer {
+    /** The default max number of messages in a server atomic batch */
+    public static final int MAX_ATOMIC_BATCH = 1000;
+
+    private final NatsStreamImpl stream;
+    private final String subject;
+    private final boolean atomicBatches;
+    private final ArrayDeque<Append> queued = new ArrayDeque<>();
+    private long lastSequence;
+    private boolean inFlight;
+    private Throwable failure;
+
+    static class Append {
+        final Headers headers;
+        final byte[] body;
+        final Promise<Long> promise;
+
+        Append(Headers headers, byte[] body, Promise<Long> promise) {
+            this.headers = headers;
+            this.body = body;
+            this.promise = promise;
+        }
+    }
+
+    public SubjectSequencerImpl(NatsStreamImpl stream, String subject, long lastSequence, boolean atomicBatches) {
+        this.stream = stream;
+        this.subject = subject;
+        this.lastSequence = lastSequence;
+        this.atomicBatches = atomicBatches;
+    }
+
+    @Override
+    public String getSubject() {
+        return subject;
+    }
+
+    @Override
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    @Override
+    public synchronized boolean isFailed() {
+        return failure != null;
+    }
+
+    @Override
+    public Future<Long> append(byte[] body) {
+        return append(null, body);
+    }
+
+    @Override
+    public Future<Long> append(Headers headers, byte[] body) {
+        final Promise<Long> promise = stream.context().promise();
+        Throwable failed;
+        synchronized (this) {
+            failed = failure;
+            if (failed == null) {
+                queued.add(new Append(headers, body, promise));
+            }
+        }
+        if (failed != null) {
+            promise.fail(failed);
+        }
+        else {
+            sendQueued();
+        }
+        return promise.future();
+    }
+
+    @Override
+    public synchronized void reset(long lastSequence) {
+        if (inFlight || !queued.isEmpty()) {
+            throw new IllegalStateException("Appends are pending for " + subject);
+        }
+        this.lastSequence = lastSequence;
+        failure = null;
+    }
+
+    private void sendQueued() {
+        final List<Append> batch = new ArrayList<>();
+        final long expected;
+        synchronized (this) {
+            if (inFlight || failure != null || queued.isEmpty()) {
+                return;
+            }
+            int max = atomicBatches ? MAX_ATOMIC_BATCH : 1;
+            while (batch.size() < max && !queued.isEmpty()) {
+                batch.add(queued.poll());
+            }
+            inFlight = true;
+            expected = lastSequence;
+        }
+
+        final List<Message> messages = new ArrayList<>(batch.size());
+        for (Append append : batch) {
+            final Headers headers = new Headers(append.headers);
+            if (messages.isEmpty()) {
+                headers.put(EXPECTED_LAST_SUB_SEQ_HDR, Long.toString(expected));
+            }
+            messages.add(NatsMessage.builder().subject(subject).headers(headers).data(append.body).build());
+        }
+
+        final Future<PublishAck> future = messages.size() == 1
+            ? stream.publish(messages.get(0))
+            : stream.publishAllAtomic(messages);
+        future.onComplete(ar -> onAck(batch, ar));
+    }
+
+    private void onAck(List<Append> batch, AsyncResult<PublishAck> ar) {
+        if (ar.succeeded()) {
+            // a batch is stored as contiguous sequences ending with the sequence of the commit
+            final long last = ar.result().getSeqno();
+            synchronized (this) {
+                lastSequence = last;
+                inFlight = false;
+            }
+            long seq = last - batch.size() + 1;
+            for (Append append : batch) {
+                append.promise.complete(seq++);
+            }
+            sendQueued();
+        }
+        else {
+            final List<Append> rest;
+            synchronized (this) {
+                failure = ar.cause();
+                inFlight = false;
+                rest = new ArrayList<>(queued);
+                queued.clear();
+            }
+            batch.forEach(append -> append.promise.fail(ar.cause()));
+            rest.forEach(append -> append.promise.fail(ar.cause()));
+        }
+    }
+}
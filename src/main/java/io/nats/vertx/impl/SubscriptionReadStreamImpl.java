@@ -2,69 +2,505 @@ package io.nats.vertx.impl;
 
 import io.nats.client.JetStreamSubscription;
 import io.nats.client.Message;
+import io.nats.client.api.AckPolicy;
+import io.nats.client.api.ConsumerConfiguration;
+import io.nats.client.api.ConsumerInfo;
+import io.nats.vertx.ConsumerMetrics;
 import io.nats.vertx.NatsVertxMessage;
+import io.nats.vertx.PullProcessor;
 import io.nats.vertx.SubscriptionReadStream;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.impl.ContextInternal;
+import io.vertx.core.streams.ReadStream;
 
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static io.nats.client.impl.NatsJetStreamSubscription.EXPIRE_ADJUSTMENT;
+import static io.nats.client.impl.NatsJetStreamSubscription.MIN_EXPIRE_MILLIS;
+
+/**
+ * Pull subscription read stream. The subscription is bound to a dispatcher, a fetch publishes
+ * a pull request that expires after the max wait and completes once the batch is filled
+ * or a Vert.x timer fires at the max wait, so no thread waits for the messages.
+ * Messages go to the oldest waiting fetch, messages that arrive with no fetch waiting are buffered
+ * for the next one. With prefetch on, the pull for the next batch is issued as soon as a batch
+ * is handed out, bounded by the prefetch message and byte budget.
+ */
 public class SubscriptionReadStreamImpl implements SubscriptionReadStream {
+    static final int MAX_HANDED_OUT_TRACKED = 100_000;
+    static final long DRAIN_CHECK_MILLIS = 10;
+    static final long ROOM_CHECK_MILLIS = 10;
+
     private final ContextInternal context;
-    private final JetStreamSubscription subscription;
     private final AtomicReference<Handler<Throwable>> exceptionHandler;
+    private final ArrayDeque<Message> buffered = new ArrayDeque<>();
+    private final ArrayDeque<PendingFetch> waiting = new ArrayDeque<>();
+    private final LinkedHashSet<Message> handedOut = new LinkedHashSet<>();
+    private JetStreamSubscription subscription;
+    private long bufferedBytes;
+    private int prefetchMessages;
+    private long prefetchBytes;
+    private int prefetchRequested;
+    private long prefetchTimerId = -1;
+    // when the outstanding prefetch pull expires on the server, in nanoTime
+    private long prefetchExpiresAt;
+    private AckPolicy ackPolicy = AckPolicy.Explicit;
+    private Duration ackWait;
+    private volatile AckBatcher ackBatcher;
+    private volatile AdaptiveBatchSizer batchSizer;
+    private volatile ConsumerMetricsRecorder metrics;
+    private long metricsTimerId = -1;
+    private boolean draining;
+
+    /**
+     * A fetch waiting for messages, either collecting them for its future
+     * or passing them on to its read stream as they arrive.
+     */
+    static class PendingFetch {
+        final Promise<List<NatsVertxMessage>> promise;
+        final PullBatchReadStream stream;
+        final int batchSize;
+        final long maxWaitMillis;
+        final List<Message> messages = new ArrayList<>();
+        int received;
+        long timerId;
+
+        PendingFetch(Promise<List<NatsVertxMessage>> promise, PullBatchReadStream stream, int batchSize, long maxWaitMillis) {
+            this.promise = promise;
+            this.stream = stream;
+            this.batchSize = batchSize;
+            this.maxWaitMillis = maxWaitMillis;
+        }
 
-    public SubscriptionReadStreamImpl(ContextInternal context, JetStreamSubscription subscription, AtomicReference<Handler<Throwable>> exceptionHandler) {
+        /**
+         * Adds a message, called holding the lock.
+         * @return true if the batch is filled
+         */
+        boolean add(Message message) {
+            if (stream == null) {
+                messages.add(message);
+            }
+            else {
+                stream.write(message);
+            }
+            return ++received == batchSize;
+        }
+    }
+
+    public SubscriptionReadStreamImpl(ContextInternal context, AtomicReference<Handler<Throwable>> exceptionHandler) {
         this.context = context;
-        this.subscription = subscription;
         this.exceptionHandler = exceptionHandler;
     }
 
+    /**
+     * Set the subscription once it is bound to the dispatcher that calls {@link #onMessage(Message)}.
+     * @param subscription the pull subscription
+     */
+    void subscription(JetStreamSubscription subscription) {
+        this.subscription = subscription;
+    }
+
+    /**
+     * Set the ack policy of the consumer, it decides whether batched acks are cumulative.
+     * @param ackPolicy the ack policy
+     */
+    void ackPolicy(AckPolicy ackPolicy) {
+        this.ackPolicy = ackPolicy;
+    }
+
+    /**
+     * Set the ack wait of the consumer, metrics stop counting a message as ack pending after it
+     * and cumulative ack batching stops waiting for it.
+     * @param ackWait the ack wait, null for the server default
+     */
+    void ackWait(Duration ackWait) {
+        this.ackWait = ackWait;
+    }
+
+    @Override
+    public SubscriptionReadStream ackBatching(int maxAcks, Duration maxDelay) {
+        ackBatcher = maxAcks <= 1 ? null : new AckBatcher(context, maxAcks, maxDelay, ackPolicy == AckPolicy.All, ackWait);
+        return this;
+    }
+
+    @Override
+    public SubscriptionReadStream metrics(Duration interval, Handler<ConsumerMetrics> handler) {
+        final ConsumerMetricsRecorder recorder = handler == null ? null : metricsRecorder();
+        synchronized (this) {
+            if (metricsTimerId != -1) {
+                context.owner().cancelTimer(metricsTimerId);
+                metricsTimerId = -1;
+            }
+            if (recorder != null) {
+                metricsTimerId = context.owner().setPeriodic(interval.toMillis(), id -> handler.handle(recorder.sample()));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * The metrics recorder of this stream, recording starts with the first call.
+     * @return the recorder
+     */
+    synchronized ConsumerMetricsRecorder metricsRecorder() {
+        if (metrics == null) {
+            metrics = new ConsumerMetricsRecorder(subscription.getSubject(), ackWait);
+        }
+        return metrics;
+    }
+
+    @Override
+    public synchronized SubscriptionReadStream prefetch(int maxMessages, long maxBytes) {
+        this.prefetchMessages = Math.max(0, maxMessages);
+        this.prefetchBytes = Math.max(0, maxBytes);
+        return this;
+    }
+
     @Override
     public Future<List<NatsVertxMessage>> fetch(int batchSize, long maxWaitMillis) {
-        final Promise<List<NatsVertxMessage>> promise = context.promise();
-        context.executeBlocking(evt -> {
-            try {
-                final List<Message> messages = subscription.fetch(batchSize, maxWaitMillis);
-                promise.complete(NatsVertxMessageImpl.listOf(messages, context));
-            } catch (Exception e) {
-                handleException(promise, e);
+        final PendingFetch pf = new PendingFetch(context.promise(), null, batchSize, maxWaitMillis);
+        try {
+            start(pf);
+        } catch (Exception e) {
+            handleException(pf.promise, e);
+        }
+        return pf.promise.future();
+    }
+
+    @Override
+    public SubscriptionReadStream adaptiveBatching(Duration targetWork, int minBatch, int maxBatch) {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(targetWork, minBatch, maxBatch);
+        batchSizer = sizer;
+        context.<ConsumerInfo>executeBlocking(() -> subscription.getConsumerInfo(), false).onComplete(ar -> {
+            if (ar.succeeded()) {
+                final ConsumerConfiguration cc = ar.result().getConsumerConfiguration();
+                sizer.limits(cc.getAckWait(), cc.getMaxAckPending());
+            }
+            else {
+                exceptionHandler.get().handle(ar.cause());
             }
-        }, false);
+        });
+        return this;
+    }
+
+    @Override
+    public int getAdaptiveBatchSize() {
+        final AdaptiveBatchSizer sizer = batchSizer;
+        return sizer == null ? 0 : sizer.getBatchSize();
+    }
+
+    @Override
+    public Future<List<NatsVertxMessage>> fetchAdaptive(long maxWaitMillis) {
+        final AdaptiveBatchSizer sizer = batchSizer;
+        if (sizer == null) {
+            final Promise<List<NatsVertxMessage>> promise = context.promise();
+            handleException(promise, new IllegalStateException("Adaptive batching is not on"));
+            return promise.future();
+        }
+        final Promise<List<NatsVertxMessage>> promise = context.promise();
+        fetchAdaptive(sizer, maxWaitMillis, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis), promise);
         return promise.future();
     }
 
+    /**
+     * Pulls the adaptive batch. While max ack pending leaves no room, no pull is sent, the room is checked again
+     * until messages are settled or the wait is over, then the fetch completes with no messages.
+     */
+    private void fetchAdaptive(AdaptiveBatchSizer sizer, long maxWaitMillis, long deadline, Promise<List<NatsVertxMessage>> promise) {
+        final long started = System.nanoTime();
+        final int batchSize = sizer.begin(started, inFlight());
+        if (batchSize > 0) {
+            fetch(batchSize, maxWaitMillis)
+                .onSuccess(messages -> sizer.fetched(batchSize, messages.size(), started, System.nanoTime()))
+                .onComplete(promise);
+        }
+        else if (started - deadline >= 0) {
+            promise.complete(new ArrayList<>());
+        }
+        else {
+            final long left = TimeUnit.NANOSECONDS.toMillis(deadline - started);
+            context.owner().setTimer(Math.max(1, Math.min(ROOM_CHECK_MILLIS, left)),
+                id -> fetchAdaptive(sizer, Math.max(1, left), deadline, promise));
+        }
+    }
+
+    /**
+     * The messages delivered and not settled yet: handed out, buffered or asked for by the outstanding prefetch pull.
+     * @return the count
+     */
+    private synchronized int inFlight() {
+        return handedOut.size() + buffered.size() + prefetchRequested;
+    }
+
     @Override
     public Future<Iterator<NatsVertxMessage>> iterate(int batchSize, long maxWaitMillis) {
-        final Promise<Iterator<NatsVertxMessage>> promise = context.promise();
-        context.executeBlocking(evt -> {
-            try {
-                final Iterator<Message> messages = subscription.iterate(batchSize, maxWaitMillis);
-                promise.complete(new Iterator<NatsVertxMessage>() {
-                    @Override
-                    public boolean hasNext() {
-                        return messages.hasNext();
-                    }
+        return fetch(batchSize, maxWaitMillis).map(List::iterator);
+    }
 
-                    @Override
-                    public NatsVertxMessage next() {
-                        return new NatsVertxMessageImpl(messages.next(), context);
-                    }
-                });
-            } catch (Exception e) {
-                handleException(promise, e);
+    @Override
+    public ReadStream<NatsVertxMessage> iterateStream(int batchSize, long maxWaitMillis) {
+        final PullBatchReadStream stream = new PullBatchReadStream(context, ackBatcher, metrics, this::settled);
+        try {
+            start(new PendingFetch(null, stream, batchSize, maxWaitMillis));
+        } catch (Exception e) {
+            stream.fail(e);
+            exceptionHandler.get().handle(e);
+        }
+        return stream;
+    }
+
+    @Override
+    public PullProcessor process(int batchSize, long maxWaitMillis, int parallelism, double refetchRatio, Handler<NatsVertxMessage> work) {
+        return new PullProcessorImpl(context, this, batchSize, maxWaitMillis, parallelism, refetchRatio, work, exceptionHandler).start();
+    }
+
+    /**
+     * Hands out buffered messages and pulls the rest of the batch.
+     */
+    private void start(PendingFetch pf) {
+        final boolean filled;
+        synchronized (this) {
+            if (draining) {
+                throw new IllegalStateException("Subscription is draining");
             }
-        }, false);
-        return promise.future();
+            final int available = pf.batchSize <= 0 ? buffered.size() : Math.min(buffered.size(), pf.batchSize);
+            filled = pf.batchSize <= 0 || available == pf.batchSize;
+            if (!filled) {
+                // pull before taking any buffered message, if the pull fails they stay buffered for the next fetch
+                final int needed = pf.batchSize - available;
+                final int covered = Math.min(needed, prefetchRequested);
+                if (needed > covered) {
+                    pull(needed - covered, pf.maxWaitMillis);
+                }
+                prefetchRequested -= covered;
+                final long now = System.nanoTime();
+                final long deadline = now + TimeUnit.MILLISECONDS.toNanos(pf.maxWaitMillis);
+                if (covered > 0 && prefetchExpiresAt - deadline < 0) {
+                    // the prefetch pull expires before the fetch times out, the fetch pulls what it still misses then
+                    final long delayMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(prefetchExpiresAt - now));
+                    context.owner().setTimer(delayMillis, id -> pullMissing(pf, covered, deadline));
+                }
+            }
+            for (int i = 0; i < available; i++) {
+                final Message message = buffered.poll();
+                bufferedBytes -= Math.max(0, message.consumeByteCount());
+                handOut(pf, message);
+            }
+            if (filled) {
+                prefetchNext(pf.batchSize, pf.maxWaitMillis);
+            }
+            else {
+                waiting.add(pf);
+                pf.timerId = context.owner().setTimer(pf.maxWaitMillis, id -> expire(pf));
+            }
+        }
+        if (filled) {
+            finish(pf);
+        }
+    }
+
+    private void finish(PendingFetch pf) {
+        if (pf.stream == null) {
+            pf.promise.complete(NatsVertxMessageImpl.listOf(pf.messages, context, ackBatcher, metrics, this::settled));
+        }
+        else {
+            pf.stream.end();
+        }
     }
 
     @Override
     public Future<Void> unsubscribeAsync() {
-        return null;
+        return drain(Duration.ZERO);
+    }
+
+    @Override
+    public Future<Void> drain(Duration timeout) {
+        final Promise<Void> promise = context.promise();
+        synchronized (this) {
+            draining = true;
+            prefetchMessages = 0;
+        }
+        awaitDrained(System.nanoTime() + timeout.toNanos(), promise);
+        return promise.future();
+    }
+
+    /**
+     * Waits for the outstanding fetches and prefetch pull to complete and the handed out messages to be settled,
+     * flushing the batched acks on every check, then closes.
+     */
+    private void awaitDrained(long deadline, Promise<Void> promise) {
+        final AckBatcher batcher = ackBatcher;
+        if (batcher != null) {
+            batcher.flush();
+        }
+        final boolean idle;
+        synchronized (this) {
+            idle = waiting.isEmpty() && prefetchRequested == 0 && handedOut.isEmpty();
+        }
+        if (idle || System.nanoTime() - deadline >= 0) {
+            close(promise);
+        }
+        else {
+            context.owner().setTimer(DRAIN_CHECK_MILLIS, id -> awaitDrained(deadline, promise));
+        }
+    }
+
+    private void close(Promise<Void> promise) {
+        final List<Message> unhandled;
+        synchronized (this) {
+            unhandled = new ArrayList<>(buffered);
+            buffered.clear();
+            bufferedBytes = 0;
+            handedOut.clear();
+        }
+        context.executeBlocking(() -> {
+            // buffered messages were never handed out, the nak has them redelivered now instead of after the ack wait
+            for (Message message : unhandled) {
+                message.nak();
+            }
+            subscription.getDispatcher().unsubscribe(subscription);
+            return null;
+        }, false).onComplete(ar -> {
+            if (ar.succeeded()) {
+                promise.complete();
+            }
+            else {
+                promise.fail(ar.cause());
+                exceptionHandler.get().handle(ar.cause());
+            }
+        });
+    }
+
+    /**
+     * Called by the message wrapper the first time a handed out message is acked, nak'd or terminated.
+     * Acks on the raw jnats message do not get here, such a message keeps the drain waiting until its timeout.
+     * @param message the message
+     */
+    private synchronized void settled(Message message) {
+        handedOut.remove(message);
+    }
+
+    /**
+     * Adds a message to a fetch and tracks it until it is settled, called holding the lock.
+     * @return true if the batch is filled
+     */
+    private boolean handOut(PendingFetch pf, Message message) {
+        if (handedOut.size() == MAX_HANDED_OUT_TRACKED) {
+            final Iterator<Message> oldest = handedOut.iterator();
+            oldest.next();
+            oldest.remove();
+        }
+        handedOut.add(message);
+        return pf.add(message);
+    }
+
+    /**
+     * Called by the dispatcher for every message of the subscription,
+     * status messages are handled by the subscription and do not get here.
+     * @param message the message
+     */
+    void onMessage(Message message) {
+        final ConsumerMetricsRecorder recorder = metrics;
+        if (recorder != null) {
+            recorder.delivered(message);
+        }
+        PendingFetch filled = null;
+        synchronized (this) {
+            final PendingFetch pf = waiting.peek();
+            if (pf == null) {
+                buffered.add(message);
+                bufferedBytes += Math.max(0, message.consumeByteCount());
+                if (prefetchRequested > 0) {
+                    prefetchRequested--;
+                }
+            }
+            else if (handOut(pf, message)) {
+                waiting.poll();
+                context.owner().cancelTimer(pf.timerId);
+                filled = pf;
+                prefetchNext(pf.batchSize, pf.maxWaitMillis);
+            }
+        }
+        if (filled != null) {
+            finish(filled);
+        }
+    }
+
+    /**
+     * Pulls the messages a fetch still misses once the prefetch pull that covered part of it expired,
+     * for the time the fetch has left.
+     */
+    private void pullMissing(PendingFetch pf, int covered, long deadline) {
+        synchronized (this) {
+            final int missing = Math.min(covered, pf.batchSize - pf.received);
+            final long leftMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (!waiting.contains(pf) || missing <= 0 || leftMillis <= 0) {
+                return;
+            }
+            try {
+                pull(missing, leftMillis);
+            } catch (Exception e) {
+                exceptionHandler.get().handle(e);
+            }
+        }
+    }
+
+    private void expire(PendingFetch pf) {
+        synchronized (this) {
+            if (!waiting.remove(pf)) {
+                return;
+            }
+            prefetchNext(pf.batchSize, pf.maxWaitMillis);
+        }
+        finish(pf);
+    }
+
+    /**
+     * Publishes a pull request that expires just before the fetch times out, called holding the lock.
+     */
+    private void pull(int batchSize, long maxWaitMillis) {
+        subscription.pullExpiresIn(batchSize, expiresIn(maxWaitMillis));
+    }
+
+    private static long expiresIn(long maxWaitMillis) {
+        return maxWaitMillis > MIN_EXPIRE_MILLIS ? maxWaitMillis - EXPIRE_ADJUSTMENT : maxWaitMillis;
+    }
+
+    /**
+     * Starts the next pull if the budget allows it and no prefetch pull is outstanding, called holding the lock.
+     */
+    private void prefetchNext(int batchSize, long maxWaitMillis) {
+        if (prefetchMessages == 0 || prefetchRequested > 0) {
+            return;
+        }
+        final int room = prefetchMessages - buffered.size();
+        if (room > 0 && (prefetchBytes == 0 || bufferedBytes < prefetchBytes)) {
+            final int requested = Math.min(batchSize, room);
+            try {
+                pull(requested, maxWaitMillis);
+            } catch (Exception e) {
+                exceptionHandler.get().handle(e);
+                return;
+            }
+            prefetchRequested = requested;
+            prefetchExpiresAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(expiresIn(maxWaitMillis));
+            prefetchTimerId = context.owner().setTimer(maxWaitMillis, id -> {
+                synchronized (this) {
+                    if (id == prefetchTimerId) {
+                        prefetchRequested = 0;
+                    }
+                }
+            });
+        }
     }
 
     private void handleException(Promise<?> promise, Exception e) {
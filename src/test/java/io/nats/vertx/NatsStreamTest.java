@@ -2,12 +2,19 @@ package io.nats.vertx;
 
 import io.nats.NatsServerRunner;
 import io.nats.client.*;
+import io.nats.client.api.AckPolicy;
+import io.nats.client.api.ConsumerConfiguration;
+import io.nats.client.api.ConsumerInfo;
+import io.nats.client.api.DeliverPolicy;
+import io.nats.client.api.PublishAck;
 import io.nats.client.api.StorageType;
 import io.nats.client.api.StreamConfiguration;
 import io.nats.client.api.StreamInfo;
 import io.nats.client.impl.Headers;
 import io.nats.client.impl.NatsMessage;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,8 +22,11 @@ import org.junit.jupiter.api.Test;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -925,4 +935,480 @@ public class NatsStreamTest {
         endLatch.await(3, TimeUnit.SECONDS);
     }
 
+
+    @Test
+    public void testPublishPipelined() throws InterruptedException {
+
+        final NatsClient clientPub = TestUtils.natsClient(
+            TestUtils.natsOptions(port, Vertx.vertx(), Throwable::printStackTrace).maxPublishInFlight(4));
+        final NatsStream jetStreamPub = TestUtils.jetStream(clientPub);
+
+        final CountDownLatch sendLatch = new CountDownLatch(100);
+        final BlockingQueue<Long> seqs = new ArrayBlockingQueue<>(200);
+        final String data = "data";
+
+        for (int i = 0; i < 100; i++) {
+            jetStreamPub.publish(SUBJECT_NAME, data + i).onSuccess(ack -> {
+                seqs.add(ack.getSeqno());
+                sendLatch.countDown();
+            });
+        }
+        assertTrue(sendLatch.await(5, TimeUnit.SECONDS));
+
+        // the window never reorders, acks arrive in publish order
+        long last = 0;
+        for (Long seq : seqs) {
+            assertTrue(seq > last);
+            last = seq;
+        }
+        assertEquals(100, last);
+
+        closeClient(clientPub);
+    }
+
+    @Test
+    public void testWriteBackPressure() throws InterruptedException {
+
+        final Vertx vertx = Vertx.vertx();
+        final NatsClient clientPub = TestUtils.natsClient(port, vertx, Throwable::printStackTrace);
+        final NatsStream jetStreamPub = TestUtils.jetStream(clientPub);
+        jetStreamPub.setWriteQueueMaxSize(10);
+
+        final CountDownLatch sendLatch = new CountDownLatch(100);
+        final AtomicInteger written = new AtomicInteger();
+        final AtomicInteger drains = new AtomicInteger();
+        final String data = "data";
+
+        vertx.runOnContext(v -> new Handler<Void>() {
+            @Override
+            public void handle(Void event) {
+                while (written.get() < 100 && !jetStreamPub.writeQueueFull()) {
+                    final NatsMessage message = NatsMessage.builder().subject(SUBJECT_NAME)
+                        .data(data + written.getAndIncrement(), StandardCharsets.UTF_8)
+                        .build();
+                    jetStreamPub.write(message).onSuccess(e -> sendLatch.countDown());
+                }
+                if (written.get() < 100) {
+                    jetStreamPub.drainHandler(d -> {
+                        drains.incrementAndGet();
+                        handle(null);
+                    });
+                }
+            }
+        }.handle(null));
+
+        assertTrue(sendLatch.await(5, TimeUnit.SECONDS));
+        assertTrue(drains.get() > 0);
+
+        final CountDownLatch endLatch = new CountDownLatch(1);
+        jetStreamPub.end().onSuccess(event -> endLatch.countDown());
+        assertTrue(endLatch.await(1, TimeUnit.SECONDS));
+
+        closeClient(clientPub);
+    }
+
+    @Test
+    public void testPublishAll() throws InterruptedException {
+
+        final NatsClient clientPub = TestUtils.natsClient(port);
+        final NatsStream jetStreamPub = TestUtils.jetStream(clientPub);
+
+        final List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            messages.add(NatsMessage.builder().subject(SUBJECT_NAME).data("data" + i, StandardCharsets.UTF_8).build());
+        }
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<List<PublishAck>> acks = new AtomicReference<>();
+        jetStreamPub.publishAll(messages).onSuccess(list -> {
+            acks.set(list);
+            latch.countDown();
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(100, acks.get().size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i + 1, acks.get().get(i).getSeqno());
+        }
+
+        closeClient(clientPub);
+    }
+
+    @Test
+    public void testPublishAllPartialFailure() throws InterruptedException {
+
+        final NatsClient clientPub = TestUtils.natsClient(port, Vertx.vertx(), e -> {});
+        final NatsStream jetStreamPub = TestUtils.jetStream(clientPub);
+
+        // odd messages go to a subject no stream listens to
+        final List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final String subject = i % 2 == 0 ? SUBJECT_NAME : "no.stream." + SUBJECT_NAME;
+            messages.add(NatsMessage.builder().subject(subject).data("data" + i, StandardCharsets.UTF_8).build());
+        }
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        jetStreamPub.publishAll(messages).onFailure(e -> {
+            error.set(e);
+            latch.countDown();
+        });
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(error.get() instanceof PublishAllException);
+
+        final PublishAllException pae = (PublishAllException) error.get();
+        assertEquals(5, pae.getFailures().size());
+        for (int i = 0; i < 10; i++) {
+            if (i % 2 == 0) {
+                assertNotNull(pae.getAcks().get(i));
+            }
+            else {
+                assertNull(pae.getAcks().get(i));
+                assertTrue(pae.getFailures().containsKey(i));
+            }
+        }
+
+        closeClient(clientPub);
+    }
+
+    @Test
+    public void testPublishAllAtomic() throws Exception {
+
+        final String streamName = SUBJECT_NAME + "Atomic";
+        nc.jetStreamManagement().addStream(StreamConfiguration.builder().name(streamName).subjects(streamName)
+            .storageType(StorageType.Memory).allowAtomicPublish().build());
+        final NatsClient clientPub = TestUtils.natsClient(port, Vertx.vertx(), e -> {});
+        final NatsStream jetStreamPub = TestUtils.jetStream(clientPub);
+
+        final List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            messages.add(NatsMessage.builder().subject(streamName).data("data" + i, StandardCharsets.UTF_8).build());
+        }
+
+        // only the commit is acked, for the whole batch
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<PublishAck> ack = new AtomicReference<>();
+        jetStreamPub.publishAllAtomic(messages).onSuccess(a -> {
+            ack.set(a);
+            latch.countDown();
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(10, ack.get().getSeqno());
+        assertEquals(10, ack.get().getBatchSize());
+        assertNotNull(ack.get().getBatchId());
+        assertEquals(10, nc.jetStreamManagement().getStreamInfo(streamName).getStreamState().getMsgCount());
+
+        // a stream that does not allow atomic publish stores none of the batch
+        final CountDownLatch failedLatch = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final List<Message> rejected = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            rejected.add(NatsMessage.builder().subject(SUBJECT_NAME).data("data" + i, StandardCharsets.UTF_8).build());
+        }
+        jetStreamPub.publishAllAtomic(rejected).onFailure(e -> {
+            error.set(e);
+            failedLatch.countDown();
+        });
+        assertTrue(failedLatch.await(5, TimeUnit.SECONDS));
+        assertNotNull(error.get());
+        assertEquals(0, nc.jetStreamManagement().getStreamInfo(SUBJECT_NAME).getStreamState().getMsgCount());
+
+        final CountDownLatch emptyLatch = new CountDownLatch(1);
+        jetStreamPub.publishAllAtomic(Collections.emptyList()).onFailure(e -> {
+            if (e instanceof IllegalArgumentException) {
+                emptyLatch.countDown();
+            }
+        });
+        assertTrue(emptyLatch.await(5, TimeUnit.SECONDS));
+
+        closeClient(clientPub);
+    }
+
+    @Test
+    public void testSequencer() throws InterruptedException {
+
+        final NatsClient clientPub = TestUtils.natsClient(port, Vertx.vertx(), e -> {});
+        final NatsStream jetStreamPub = TestUtils.jetStream(clientPub);
+
+        final SubjectSequencer sequencer = jetStreamPub.sequencer(SUBJECT_NAME, 0);
+        final CountDownLatch latch = new CountDownLatch(10);
+        final List<Long> sequences = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 10; i++) {
+            sequencer.append(("data" + i).getBytes(StandardCharsets.UTF_8)).onSuccess(seq -> {
+                sequences.add(seq);
+                latch.countDown();
+            });
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i < 10; i++) {
+            assertTrue(sequences.get(i) > sequences.get(i - 1));
+        }
+        assertEquals(sequences.get(9).longValue(), sequencer.getLastSequence());
+
+        // another writer changes the subject, the next append and the ones behind it fail
+        final CountDownLatch published = new CountDownLatch(1);
+        jetStreamPub.publish(SUBJECT_NAME, "other writer").onSuccess(ack -> published.countDown());
+        assertTrue(published.await(10, TimeUnit.SECONDS));
+
+        final CountDownLatch failed = new CountDownLatch(2);
+        sequencer.append("conflict".getBytes(StandardCharsets.UTF_8)).onFailure(e -> failed.countDown());
+        sequencer.append("behind".getBytes(StandardCharsets.UTF_8)).onFailure(e -> failed.countDown());
+        assertTrue(failed.await(10, TimeUnit.SECONDS));
+        assertTrue(sequencer.isFailed());
+
+        closeClient(clientPub);
+    }
+
+    @Test
+    public void testConsumeReadStream() throws Exception {
+        final String durable = "consumeDurable";
+        nc.jetStreamManagement().addOrUpdateConsumer(SUBJECT_NAME, ConsumerConfiguration.builder().durable(durable).build());
+        for (int i = 0; i < 100; i++) {
+            nc.publish(SUBJECT_NAME, ("data" + i).getBytes());
+        }
+
+        final NatsClient natsClient = TestUtils.natsClient(port);
+        final NatsStream natsStream = TestUtils.jetStream(natsClient);
+
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final AtomicReference<ConsumerReadStream> stream = new AtomicReference<>();
+        natsStream.consume(SUBJECT_NAME, durable, ConsumeOptions.builder().batchSize(10).build())
+            .onSuccess(rs -> {
+                stream.set(rs);
+                startLatch.countDown();
+            });
+        assertTrue(startLatch.await(10, TimeUnit.SECONDS));
+
+        // pause after the first half, resume a moment later
+        final CountDownLatch half = new CountDownLatch(50);
+        final CountDownLatch all = new CountDownLatch(100);
+        final ConsumerReadStream readStream = stream.get();
+        readStream.handler(message -> {
+            message.ack();
+            half.countDown();
+            all.countDown();
+            if (half.getCount() == 0 && all.getCount() == 50) {
+                readStream.pause();
+            }
+        });
+        assertTrue(half.await(10, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(50, all.getCount());
+        readStream.resume();
+        assertTrue(all.await(10, TimeUnit.SECONDS));
+
+        final CountDownLatch endLatch = new CountDownLatch(1);
+        readStream.endHandler(v -> endLatch.countDown());
+        readStream.stop();
+        assertTrue(endLatch.await(10, TimeUnit.SECONDS));
+        closeClient(natsClient);
+    }
+
+    @Test
+    public void testDrainConsumeReadStream() throws Exception {
+        final String durable = "drainConsumeDurable";
+        nc.jetStreamManagement().addOrUpdateConsumer(SUBJECT_NAME, ConsumerConfiguration.builder().durable(durable).build());
+        for (int i = 0; i < 100; i++) {
+            nc.publish(SUBJECT_NAME, ("data" + i).getBytes());
+        }
+
+        final NatsClient natsClient = TestUtils.natsClient(port);
+        final NatsStream natsStream = TestUtils.jetStream(natsClient);
+
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final AtomicReference<ConsumerReadStream> stream = new AtomicReference<>();
+        natsStream.consume(SUBJECT_NAME, durable, ConsumeOptions.builder().batchSize(10).build())
+            .onSuccess(rs -> {
+                stream.set(rs);
+                startLatch.countDown();
+            });
+        assertTrue(startLatch.await(10, TimeUnit.SECONDS));
+
+        // the stream is live and handling slowly when the drain starts
+        final AtomicInteger handled = new AtomicInteger();
+        final CountDownLatch first = new CountDownLatch(1);
+        final CountDownLatch endLatch = new CountDownLatch(1);
+        final ConsumerReadStream readStream = stream.get();
+        readStream.endHandler(v -> endLatch.countDown());
+        readStream.handler(message -> {
+            handled.incrementAndGet();
+            message.ack();
+            first.countDown();
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(first.await(10, TimeUnit.SECONDS));
+
+        final CountDownLatch drained = new CountDownLatch(1);
+        natsStream.drain(Duration.ofSeconds(10)).onSuccess(v -> drained.countDown());
+        assertTrue(drained.await(15, TimeUnit.SECONDS));
+        assertTrue(endLatch.await(1, TimeUnit.SECONDS));
+        assertFalse(readStream.isConsuming());
+
+        // nothing is delivered after the drain, and everything delivered was handled and acked
+        final int afterDrain = handled.get();
+        Thread.sleep(500);
+        assertEquals(afterDrain, handled.get());
+        assertTrue(afterDrain < 100);
+        final ConsumerInfo ci = nc.jetStreamManagement().getConsumerInfo(SUBJECT_NAME, durable);
+        assertEquals(afterDrain, ci.getAckFloor().getConsumerSequence());
+        assertEquals(0, ci.getNumAckPending());
+        closeClient(natsClient);
+    }
+
+    @Test
+    public void testPullWorkers() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            nc.publish(SUBJECT_NAME, ("data" + i).getBytes());
+        }
+
+        final NatsClient natsClient = TestUtils.natsClient(port);
+        final NatsStream natsStream = TestUtils.jetStream(natsClient);
+
+        final CountDownLatch all = new CountDownLatch(100);
+        final AtomicReference<PullWorkers> workers = new AtomicReference<>();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        natsStream.pullWorkers(SUBJECT_NAME, "workersDurable", 4, 10, 500, message -> {
+                message.ack();
+                all.countDown();
+            })
+            .onSuccess(w -> {
+                workers.set(w);
+                startLatch.countDown();
+            });
+        assertTrue(startLatch.await(10, TimeUnit.SECONDS));
+        assertTrue(all.await(10, TimeUnit.SECONDS));
+        assertEquals(4, workers.get().getWorkerCount());
+        assertEquals(100, workers.get().getMessages());
+
+        final CountDownLatch stopLatch = new CountDownLatch(1);
+        workers.get().stop().onSuccess(v -> stopLatch.countDown());
+        assertTrue(stopLatch.await(10, TimeUnit.SECONDS));
+        closeClient(natsClient);
+    }
+
+    @Test
+    public void testSubscribePartitioned() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        final NatsClient natsClient = TestUtils.natsClient(port, vertx, Throwable::printStackTrace);
+        final NatsStream natsStream = TestUtils.jetStream(natsClient);
+
+        final Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        final CountDownLatch all = new CountDownLatch(100);
+        final AtomicReference<PartitionedProcessor> processor = new AtomicReference<>();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final PushSubscribeOptions so = PushSubscribeOptions.builder()
+            .configuration(ConsumerConfiguration.builder().ackPolicy(AckPolicy.All).build())
+            .build();
+        natsStream.subscribePartitioned(SUBJECT_NAME, so, 4,
+                message -> String.valueOf(Integer.parseInt(new String(message.getData())) % 5),
+                message -> {
+                    final int value = Integer.parseInt(new String(message.getData()));
+                    final Promise<Void> done = Promise.promise();
+                    // later messages finish sooner, the order must hold anyway
+                    vertx.setTimer(1 + (100 - value) % 7, id -> {
+                        seen.computeIfAbsent(String.valueOf(value % 5), k -> Collections.synchronizedList(new ArrayList<>())).add(value);
+                        all.countDown();
+                        done.complete();
+                    });
+                    return done.future();
+                })
+            .onSuccess(p -> {
+                processor.set(p);
+                startLatch.countDown();
+            });
+        assertTrue(startLatch.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            nc.publish(SUBJECT_NAME, String.valueOf(i).getBytes());
+        }
+        assertTrue(all.await(10, TimeUnit.SECONDS));
+        for (List<Integer> values : seen.values()) {
+            for (int i = 1; i < values.size(); i++) {
+                assertTrue(values.get(i - 1) < values.get(i));
+            }
+        }
+
+        final CountDownLatch stopLatch = new CountDownLatch(1);
+        processor.get().stop().onSuccess(v -> stopLatch.countDown());
+        assertTrue(stopLatch.await(10, TimeUnit.SECONDS));
+        assertEquals(0, processor.get().getPending());
+        assertEquals(100, processor.get().getProcessed());
+        assertEquals(100, processor.get().getAckFloor());
+        closeClient(natsClient);
+    }
+
+    @Test
+    public void testSubscribeStreamBackPressure() throws Exception {
+        final NatsClient natsClient = TestUtils.natsClient(port);
+        final NatsStream natsStream = TestUtils.jetStream(natsClient);
+
+        final PushSubscribeOptions so = PushSubscribeOptions.builder()
+            .configuration(ConsumerConfiguration.builder().flowControl(Duration.ofSeconds(1)).build())
+            .build();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final AtomicReference<PushSubscriptionReadStream> stream = new AtomicReference<>();
+        natsStream.subscribeStream(SUBJECT_NAME, so, 10).onSuccess(rs -> {
+            stream.set(rs);
+            startLatch.countDown();
+        });
+        assertTrue(startLatch.await(10, TimeUnit.SECONDS));
+
+        // take the first 20 and pause, the buffer fills and the dispatcher holds the rest
+        final CountDownLatch first = new CountDownLatch(20);
+        final CountDownLatch all = new CountDownLatch(100);
+        final PushSubscriptionReadStream readStream = stream.get();
+        readStream.handler(message -> {
+            message.ack();
+            first.countDown();
+            all.countDown();
+            if (first.getCount() == 0 && all.getCount() == 80) {
+                readStream.pause();
+            }
+        });
+        for (int i = 0; i < 100; i++) {
+            nc.publish(SUBJECT_NAME, ("data" + i).getBytes());
+        }
+        assertTrue(first.await(10, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(80, all.getCount());
+        assertTrue(readStream.isDeliveryPaused());
+        readStream.resume();
+        assertTrue(all.await(10, TimeUnit.SECONDS));
+        assertFalse(readStream.isDeliveryPaused());
+
+        final CountDownLatch endLatch = new CountDownLatch(1);
+        readStream.endHandler(v -> endLatch.countDown());
+        readStream.unsubscribe();
+        assertTrue(endLatch.await(10, TimeUnit.SECONDS));
+        closeClient(natsClient);
+    }
+
+    @Test
+    public void testSubscribeWithDispatcherPooling() throws Exception {
+        final NatsClient natsClient = TestUtils.natsClient(TestUtils.natsOptions(port, Vertx.vertx(), System.err::println)
+            .dispatcherPooling(true));
+        final NatsStream natsStream = TestUtils.jetStream(natsClient);
+
+        for (int round = 0; round < 2; round++) {
+            final CountDownLatch latch = new CountDownLatch(10);
+            final CountDownLatch subscribed = new CountDownLatch(1);
+            natsStream.subscribe(SUBJECT_NAME, message -> latch.countDown(), true,
+                    PushSubscribeOptions.builder()
+                    .configuration(ConsumerConfiguration.builder().deliverPolicy(DeliverPolicy.New).build()).build())
+                .onSuccess(v -> subscribed.countDown());
+            assertTrue(subscribed.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 10; i++) {
+                nc.publish(SUBJECT_NAME, ("data" + i).getBytes());
+            }
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+            final CountDownLatch unsubscribed = new CountDownLatch(1);
+            natsStream.unsubscribe(SUBJECT_NAME).onSuccess(v -> unsubscribed.countDown());
+            assertTrue(unsubscribed.await(10, TimeUnit.SECONDS));
+        }
+        closeClient(natsClient);
+    }
+
 }
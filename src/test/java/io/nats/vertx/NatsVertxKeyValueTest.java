@@ -17,7 +17,9 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -368,6 +370,41 @@ public class NatsVertxKeyValueTest {
         assertNull(kve);
     }
 
+    @Test
+    public void testGetWithoutDirect() throws Exception {
+        KvTester tester = new KvTester();
+        long seq = tester.put("a", 1);
+
+        // buckets allow direct gets by design, turn it off on the stream to read through the api
+        JetStreamManagement jsm = testRunner.nc.jetStreamManagement();
+        String streamName = NatsKeyValueUtil.toStreamName(tester.bucket);
+        StreamConfiguration sc = jsm.getStreamInfo(streamName).getConfiguration();
+        jsm.updateStream(StreamConfiguration.builder(sc).allowDirect(false).build());
+
+        NatsVertxKeyValue kv = tester.keyValue(tester.natsClient, tester.bucket);
+        assertEquals(1, tester.execute(() -> kv.get("a")).getValueAsLong());
+        assertEquals(1, tester.execute(() -> kv.get("a", seq)).getValueAsLong());
+        assertNull(tester.execute(() -> kv.get("missing")));
+    }
+
+    @Test
+    public void testGetAfterDirectTurnedOff() throws Exception {
+        KvTester tester = new KvTester();
+        long seq = tester.put("a", 1);
+
+        // the handle saw direct gets allowed, nobody answers them once the stream turns them off
+        NatsVertxKeyValue kv = tester.keyValue(tester.natsClient, tester.bucket);
+        assertEquals(1, tester.execute(() -> kv.get("a")).getValueAsLong());
+        JetStreamManagement jsm = testRunner.nc.jetStreamManagement();
+        String streamName = NatsKeyValueUtil.toStreamName(tester.bucket);
+        StreamConfiguration sc = jsm.getStreamInfo(streamName).getConfiguration();
+        jsm.updateStream(StreamConfiguration.builder(sc).allowDirect(false).build());
+
+        assertEquals(1, tester.execute(() -> kv.get("a")).getValueAsLong());
+        assertEquals(1, tester.execute(() -> kv.get("a", seq)).getValueAsLong());
+        assertNull(tester.execute(() -> kv.get("missing")));
+    }
+
     @Test
     public void testKeys() throws Exception {
         KvTester tester = new KvTester();
@@ -383,6 +420,144 @@ public class NatsVertxKeyValueTest {
         }
     }
 
+    @Test
+    public void testNearCache() throws Exception {
+        KvTester tester = new KvTester();
+        KeyValueNearCache cache = tester.nearCache(100);
+        assertNotNull(cache);
+
+        tester.put("a", 1);
+        assertEquals(1, tester.get("a").getValueAsLong());
+        assertEquals(1, tester.get("a").getValueAsLong());
+        assertNull(tester.get("missing"));
+        assertNull(tester.get("missing"));
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        // a write from another connection reaches the cache through the watch
+        KeyValue other = testRunner.nc.keyValue(tester.bucket);
+        other.put("a", 2);
+        other.put("missing", 3);
+        sleep(250);
+        assertEquals(2, tester.get("a").getValueAsLong());
+        assertEquals(3, tester.get("missing").getValueAsLong());
+        other.delete("a");
+        sleep(250);
+        assertNull(tester.get("a"));
+        assertEquals(5, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        tester.execute(cache::close);
+        tester.put("b", 4);
+        assertEquals(4, tester.get("b").getValueAsLong());
+        assertEquals(5, cache.getHits());
+    }
+
+    @Test
+    public void testMaterialize() throws Exception {
+        KvTester tester = new KvTester();
+        tester.put("app.a", 1);
+        tester.put("app.b", 2);
+        tester.put("other", 3);
+        tester.delete("other");
+
+        MaterializedKeyValue replica = tester.materialize();
+        assertNotNull(replica);
+        assertEquals(2, replica.size());
+        assertEquals(1, replica.get("app.a").getValueAsLong());
+        assertNull(replica.get("other"));
+        assertEquals(Arrays.asList("app.a", "app.b"), replica.keys("app."));
+
+        long revision = tester.put("app.c", 4);
+        tester.execute(() -> replica.awaitRevision(revision));
+        assertNull(tester.executionError.get());
+        assertEquals(4, replica.get("app.c").getValueAsLong());
+        assertEquals(revision, replica.getRevision());
+
+        tester.execute(replica::close);
+        assertEquals(0, replica.size());
+    }
+
+    @Test
+    public void testGetMany() throws Exception {
+        KvTester tester = new KvTester();
+        List<String> keys = new ArrayList<>();
+        for (int x = 1; x <= 300; x++) {
+            tester.put("page.k" + x, x);
+            keys.add("page.k" + x);
+        }
+        tester.put("other", 0);
+        tester.delete("page.k2");
+        keys.add("missing");
+
+        Map<String, KeyValueEntry> entries = tester.getMany(keys);
+        assertEquals(299, entries.size());
+        assertEquals(1, entries.get("page.k1").getValueAsLong());
+        assertEquals(300, entries.get("page.k300").getValueAsLong());
+        assertFalse(entries.containsKey("page.k2"));
+        assertFalse(entries.containsKey("missing"));
+        assertEquals("page.k1", entries.keySet().iterator().next());
+
+        entries = tester.getMany("page.>");
+        assertEquals(299, entries.size());
+        assertFalse(entries.containsKey("other"));
+    }
+
+    @Test
+    public void testKeysHistoryEndWithoutWaiting() throws Exception {
+        KvTester tester = new KvTester();
+        long start = System.currentTimeMillis();
+        assertTrue(tester.keys().isEmpty());
+        assertTrue(tester.history("missing").isEmpty());
+        assertNull(tester.executionError.get());
+
+        tester.put("a", 1);
+        tester.put("a", 2);
+        assertEquals(2, tester.history("a").size());
+        assertEquals(Collections.singletonList("a"), tester.keys());
+        // the visits end on the last message, not on a timeout
+        assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+
+    @Test
+    public void testKeysStream() throws Exception {
+        KvTester tester = new KvTester();
+
+        // nothing to read, the stream ends right away
+        KeyValueReadStream<String> empty = tester.execute(() -> tester.kv.keysStream());
+        CountDownLatch emptyEnded = new CountDownLatch(1);
+        empty.endHandler(v -> emptyEnded.countDown()).handler(key -> {});
+        assertTrue(emptyEnded.await(5, TimeUnit.SECONDS));
+
+        for (int x = 1; x <= 50; x++) {
+            tester.put("k" + x, x);
+        }
+        tester.delete("k7");
+
+        KeyValueReadStream<String> stream = tester.execute(() -> tester.kv.keysStream(Arrays.asList(">"), 5));
+        List<String> keys = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch ended = new CountDownLatch(1);
+        stream.pause();
+        stream.endHandler(v -> ended.countDown()).handler(keys::add);
+        sleep(250);
+        assertTrue(keys.isEmpty());
+        stream.resume();
+        assertTrue(ended.await(5, TimeUnit.SECONDS));
+        assertEquals(49, keys.size());
+        assertFalse(keys.contains("k7"));
+
+        // cancel after the first key
+        KeyValueReadStream<String> cancelled = tester.execute(() -> tester.kv.keysStream());
+        List<String> first = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch cancelEnded = new CountDownLatch(1);
+        cancelled.endHandler(v -> cancelEnded.countDown()).handler(key -> {
+            first.add(key);
+            cancelled.cancel();
+        });
+        assertTrue(cancelEnded.await(5, TimeUnit.SECONDS));
+        assertEquals(1, first.size());
+    }
+
     @Test
     public void testMaxHistoryPerKey() throws Exception {
         KvTester tester1 = new KvTester();
@@ -998,6 +1173,22 @@ public class NatsVertxKeyValueTest {
             return execute(() -> kv.get(key));
         }
 
+        Map<String, KeyValueEntry> getMany(List<String> keys) throws InterruptedException {
+            return execute(() -> kv.getMany(keys));
+        }
+
+        Map<String, KeyValueEntry> getMany(String filter) throws InterruptedException {
+            return execute(() -> kv.getMany(filter));
+        }
+
+        MaterializedKeyValue materialize() throws InterruptedException {
+            return execute(kv::materialize);
+        }
+
+        KeyValueNearCache nearCache(int maxEntries) throws InterruptedException {
+            return execute(() -> kv.nearCache(maxEntries));
+        }
+
         KeyValueEntry get(String key, long revision) throws InterruptedException {
             return execute(() -> kv.get(key, revision));
         }
@@ -61,7 +61,7 @@ public class TestUtils {
         return natsClient(natsOptions(port, vertx, exceptionHandler));
     }
 
-    private static NatsClient natsClient(NatsOptions natsOptions) {
+    public static NatsClient natsClient(NatsOptions natsOptions) {
         final NatsClient natsClient = NatsClient.create(natsOptions);
         final Future<Void> connect = natsClient.connect();
 
@@ -0,0 +1,124 @@
+package io.nats.vertx.examples;
+
+import io.nats.client.*;
+import io.nats.client.api.StorageType;
+import io.nats.client.api.StreamConfiguration;
+import io.nats.vertx.NatsClient;
+import io.nats.vertx.NatsOptions;
+import io.nats.vertx.NatsStream;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures the setup cost of many push subscriptions, with a dispatcher per subscription
+ * and with pooled dispatchers, one per event loop.
+ */
+public class SubscribeSetupBenchmark {
+
+    public final static String STREAM_NAME = "subscribeSetup";
+
+    public final static int PORT = 4222;
+
+    public final static int SUBSCRIPTIONS = 1000;
+
+    public final static int RUNS = 5;
+
+    public static void main(String[] args) throws Exception {
+        setup(PORT);
+
+        for (int i = 0; i < RUNS; i++) {
+            run(false);
+            run(true);
+        }
+    }
+
+    private static void run(final boolean pooling) throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        final NatsClient natsClient = getNatsClient(vertx, PORT, pooling);
+        final NatsStream jetStream = getJetStream(natsClient);
+
+        System.gc();
+        final Runtime runtime = Runtime.getRuntime();
+        final long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        final long startTime = System.nanoTime();
+
+        final List<Future<Void>> subscribed = new ArrayList<>();
+        for (int i = 0; i < SUBSCRIPTIONS; i++) {
+            subscribed.add(jetStream.subscribe("tenant." + i, event -> {
+            }, true, PushSubscribeOptions.builder().build()));
+        }
+        await(Future.all(subscribed).mapEmpty());
+
+        final long setupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        final long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+        System.out.printf("pooling %-5s subscriptions %,d setup ms %,d heap kb %,d \n",
+            pooling, SUBSCRIPTIONS, setupMillis, (heapAfter - heapBefore) / 1024);
+
+        final List<Future<Void>> unsubscribed = new ArrayList<>();
+        for (int i = 0; i < SUBSCRIPTIONS; i++) {
+            unsubscribed.add(jetStream.unsubscribe("tenant." + i));
+        }
+        await(Future.all(unsubscribed).mapEmpty());
+
+        await(natsClient.end());
+        await(vertx.close());
+    }
+
+    private static void await(final Future<Void> future) throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        future.onComplete(event -> latch.countDown());
+        latch.await(60, TimeUnit.SECONDS);
+        if (future.failed()) {
+            throw new IllegalStateException(future.cause());
+        }
+    }
+
+    public static void setup(int port) throws Exception {
+        Options.Builder builder = new Options.Builder().connectionTimeout(Duration.ofSeconds(5))
+                .server("localhost:" + port);
+        final Connection nc = Nats.connect(builder.build());
+        try {
+            JetStreamManagement jsm = nc.jetStreamManagement();
+            try {
+                jsm.deleteStream(STREAM_NAME);
+            } catch (Exception ignore) {
+            }
+            jsm.addStream(StreamConfiguration.builder()
+                .name(STREAM_NAME)
+                .subjects("tenant.>")
+                .storageType(StorageType.Memory)
+                .build());
+        } finally {
+            nc.close();
+        }
+    }
+
+    static NatsStream getJetStream(final NatsClient natsClient) throws InterruptedException {
+        final AtomicReference<NatsStream> stream = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        natsClient.jetStream().onSuccess(event -> {
+            stream.set(event);
+            latch.countDown();
+        }).onFailure(Throwable::printStackTrace);
+        latch.await(5, TimeUnit.SECONDS);
+        return stream.get();
+    }
+
+    static NatsClient getNatsClient(Vertx vertx, int port, boolean pooling) throws Exception {
+        final NatsOptions natsOptions = new NatsOptions()
+            .dispatcherPooling(pooling);
+        natsOptions.setVertx(vertx);
+        natsOptions.setNatsBuilder(new Options.Builder().server("localhost:" + port));
+        final NatsClient natsClient = NatsClient.create(natsOptions);
+        natsClient.exceptionHandler(Throwable::printStackTrace);
+        await(natsClient.connect());
+        return natsClient;
+    }
+}
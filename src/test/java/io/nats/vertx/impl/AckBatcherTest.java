@@ -0,0 +1,184 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.Message;
+import io.nats.client.impl.NatsJetStreamMetaData;
+import io.nats.client.impl.NatsMessage;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.impl.ContextInternal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AckBatcherTest {
+
+    final Vertx vertx = Vertx.vertx();
+    final ContextInternal context = (ContextInternal) vertx.getOrCreateContext();
+    final List<Integer> acked = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    public void after() {
+        vertx.close();
+    }
+
+    Message message(int id) {
+        return (Message) Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[]{Message.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("ack")) {
+                    acked.add(id);
+                }
+                return null;
+            });
+    }
+
+    /**
+     * A message with the stream sequence of its id, as a delivery of a JetStream consumer.
+     */
+    Message jsMessage(int id) {
+        final NatsJetStreamMetaData metaData = new NatsJetStreamMetaData(
+            new NatsMessage("subject", "$JS.ACK.stream.consumer.1." + id + "." + id + ".0.0", null) {
+                @Override
+                public boolean isJetStream() {
+                    return true;
+                }
+            });
+        return (Message) Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[]{Message.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("ack")) {
+                    acked.add(id);
+                }
+                return method.getName().equals("metaData") ? metaData : null;
+            });
+    }
+
+    @Test
+    public void testSendsOnCount() throws Exception {
+        AckBatcher batcher = new AckBatcher(context, 3, Duration.ofSeconds(10), false);
+        batcher.ack(message(1));
+        Future<Void> second = batcher.ack(message(2));
+        assertTrue(acked.isEmpty());
+
+        Future<Void> third = batcher.ack(message(3));
+        third.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertTrue(second.succeeded());
+        assertEquals(3, acked.size());
+    }
+
+    @Test
+    public void testSendsOnDelay() throws Exception {
+        AckBatcher batcher = new AckBatcher(context, 100, Duration.ofMillis(20), false);
+        batcher.ack(message(1)).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertEquals(1, acked.size());
+    }
+
+    @Test
+    public void testCumulativeAcksContiguousPrefix() throws Exception {
+        AckBatcher batcher = new AckBatcher(context, 100, Duration.ofSeconds(10), true);
+        Message[] messages = new Message[5];
+        for (int i = 0; i < 5; i++) {
+            messages[i] = message(i + 1);
+            batcher.delivered(messages[i]);
+        }
+
+        // 2 and 3 are processed but 1 is not, nothing can be acked yet
+        Future<Void> two = batcher.ack(messages[1]);
+        batcher.ack(messages[2]);
+        batcher.flush();
+        Thread.sleep(100);
+        assertTrue(acked.isEmpty());
+        assertFalse(two.isComplete());
+
+        // 1 completes the prefix up to 3, one ack for 3 covers all of them
+        batcher.ack(messages[0]);
+        batcher.flush();
+        two.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertEquals(1, acked.size());
+        assertEquals(3, acked.get(0));
+
+        // a nak settles 4 without acking it, the ack goes to 5
+        batcher.settled(messages[3]);
+        batcher.ack(messages[4]);
+        batcher.flush();
+        Thread.sleep(100);
+        assertEquals(2, acked.size());
+        assertEquals(5, acked.get(1));
+    }
+
+    @Test
+    public void testCumulativeSyncAckInPrefix() throws Exception {
+        AckBatcher batcher = new AckBatcher(context, 100, Duration.ofSeconds(10), true);
+        NatsVertxMessageImpl[] messages = new NatsVertxMessageImpl[3];
+        for (int i = 0; i < 3; i++) {
+            messages[i] = new NatsVertxMessageImpl(message(i + 1), context, batcher);
+        }
+
+        // 2 is acked right away, it must not hold back the cumulative ack
+        messages[0].ackAsync();
+        messages[1].ack();
+        Future<Void> three = messages[2].ackAsync();
+        batcher.flush();
+        three.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertEquals(2, acked.size());
+        assertEquals(2, acked.get(0));
+        assertEquals(3, acked.get(1));
+
+        // nothing is left tracked, a later message is acked on its own
+        NatsVertxMessageImpl four = new NatsVertxMessageImpl(message(4), context, batcher);
+        four.ackAndForget();
+        batcher.flush();
+        Thread.sleep(100);
+        assertEquals(3, acked.size());
+        assertEquals(4, acked.get(2));
+    }
+
+    @Test
+    public void testCumulativeUnsettledHeadExpires() throws Exception {
+        AckBatcher batcher = new AckBatcher(context, 100, Duration.ofSeconds(10), true, Duration.ofMillis(200));
+        Message[] messages = new Message[3];
+        for (int i = 0; i < 3; i++) {
+            messages[i] = jsMessage(i + 1);
+            batcher.delivered(messages[i]);
+        }
+
+        // 1 is dropped by the handler and never settled, it holds the prefix until its ack wait passed
+        batcher.ack(messages[1]);
+        Future<Void> three = batcher.ack(messages[2]);
+        batcher.flush();
+        Thread.sleep(50);
+        assertTrue(acked.isEmpty());
+
+        Thread.sleep(250);
+        batcher.flush();
+        three.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertEquals(1, acked.size());
+        assertEquals(3, acked.get(0));
+    }
+
+    @Test
+    public void testCumulativeRedeliveredHeadIsPassedOver() throws Exception {
+        AckBatcher batcher = new AckBatcher(context, 100, Duration.ofSeconds(10), true, Duration.ofSeconds(30));
+        Message one = jsMessage(1);
+        Message two = jsMessage(2);
+        batcher.delivered(one);
+        batcher.delivered(two);
+        batcher.ack(two);
+        batcher.flush();
+        Thread.sleep(50);
+        assertTrue(acked.isEmpty());
+
+        // 1 comes back as a new message, the first delivery no longer holds 2
+        Message redelivered = jsMessage(1);
+        batcher.delivered(redelivered);
+        batcher.flush();
+        Thread.sleep(100);
+        assertEquals(1, acked.size());
+        assertEquals(2, acked.get(0));
+    }
+}
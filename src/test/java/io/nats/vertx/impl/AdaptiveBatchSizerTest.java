@@ -0,0 +1,80 @@
+package io.nats.vertx.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveBatchSizerTest {
+
+    static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testCoversTargetWorkAndLatency() {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(Duration.ofMillis(100), 10, 1000);
+        assertEquals(10, sizer.begin(0, 0));
+        // filled in 10ms, 10 messages processed in 10ms
+        sizer.fetched(10, 10, 0, 10 * MS);
+        // (100ms target + 10ms latency) / 1ms per message
+        assertEquals(110, sizer.begin(20 * MS, 0));
+    }
+
+    @Test
+    public void testStaysWithinAckWaitAndMaxAckPending() {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(Duration.ofSeconds(60), 1, 100000);
+        sizer.limits(Duration.ofSeconds(10), 500);
+        sizer.begin(0, 0);
+        sizer.fetched(1, 1, 0, MS);
+        // 1 message in 100ms, half the ack wait holds 50
+        assertEquals(50, sizer.begin(101 * MS, 0));
+
+        final AdaptiveBatchSizer fast = new AdaptiveBatchSizer(Duration.ofSeconds(60), 1, 100000);
+        fast.limits(Duration.ofSeconds(10), 500);
+        fast.begin(0, 0);
+        fast.fetched(1, 1, 0, MS);
+        assertEquals(500, fast.begin(2 * MS, 0));
+    }
+
+    @Test
+    public void testInFlightCountsAgainstMaxAckPending() {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(Duration.ofSeconds(60), 1, 100000);
+        sizer.limits(Duration.ofSeconds(10), 500);
+        sizer.begin(0, 0);
+        sizer.fetched(1, 1, 0, MS);
+        assertEquals(300, sizer.begin(2 * MS, 200));
+        // no room left, no pull until messages are settled
+        assertEquals(0, sizer.begin(3 * MS, 500));
+        assertEquals(0, sizer.begin(4 * MS, 600));
+        assertEquals(100, sizer.begin(5 * MS, 400));
+    }
+
+    @Test
+    public void testFirstPullStaysWithinMaxAckPending() {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(Duration.ofSeconds(1), 10, 1000);
+        sizer.limits(Duration.ofSeconds(10), 20);
+        assertEquals(5, sizer.begin(0, 15));
+        assertEquals(0, sizer.begin(0, 20));
+    }
+
+    @Test
+    public void testNoMaxAckPendingIsUnbounded() {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(Duration.ofSeconds(60), 1, 100000);
+        sizer.limits(Duration.ofSeconds(10), -1);
+        sizer.begin(0, 0);
+        sizer.fetched(1, 1, 0, MS);
+        // only half the ack wait at 1ms per message caps it
+        assertEquals(5000, sizer.begin(2 * MS, 200));
+    }
+
+    @Test
+    public void testKeepsSizeAfterEmptyBatch() {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(Duration.ofMillis(100), 10, 1000);
+        sizer.begin(0, 0);
+        sizer.fetched(10, 10, 0, 10 * MS);
+        final int size = sizer.begin(20 * MS, 0);
+        sizer.fetched(size, 0, 20 * MS, 1000 * MS);
+        assertEquals(size, sizer.begin(5000 * MS, 0));
+    }
+}
@@ -0,0 +1,79 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.Message;
+import io.nats.client.impl.NatsJetStreamMetaData;
+import io.nats.client.impl.NatsMessage;
+import io.nats.vertx.ConsumerMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsumerMetricsRecorderTest {
+
+    Message message(long delivered, long pending, long ageMillis) {
+        final long timestampNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - ageMillis);
+        final String replyTo = "$JS.ACK.stream.consumer." + delivered + ".1.1." + timestampNanos + "." + pending;
+        final NatsJetStreamMetaData meta = new NatsJetStreamMetaData(new NatsMessage("subject", replyTo, new byte[0]) {
+            @Override
+            public boolean isJetStream() {
+                return true;
+            }
+        });
+        return (Message) Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[]{Message.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "isJetStream":
+                        return true;
+                    case "metaData":
+                        return meta;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    @Test
+    public void testSample() {
+        final ConsumerMetricsRecorder recorder = new ConsumerMetricsRecorder("subject", Duration.ofSeconds(30));
+        final Message first = message(1, 20, 100);
+        recorder.delivered(first);
+        recorder.delivered(message(3, 19, 300));
+        recorder.processed(TimeUnit.MILLISECONDS.toNanos(3));
+        recorder.settled(first);
+
+        final ConsumerMetrics metrics = recorder.sample();
+        assertEquals("subject", metrics.getSubject());
+        assertEquals(19, metrics.getPending());
+        assertEquals(1, metrics.getAckPending());
+        assertEquals(2, metrics.getDelivered());
+        assertEquals(1, metrics.getRedelivered());
+        assertTrue(metrics.getMaxDelayMillis() >= 300);
+        assertTrue(metrics.getAverageDelayMillis() >= 200);
+        // 3ms falls in the bucket up to 5ms
+        assertEquals(1, metrics.getProcessingTimeCounts()[2]);
+
+        // settling twice does not count, the interval values start over
+        recorder.settled(first);
+        final ConsumerMetrics next = recorder.sample();
+        assertEquals(1, next.getAckPending());
+        assertEquals(2, next.getDelivered());
+        assertEquals(0, next.getMaxDelayMillis());
+        assertEquals(0, next.getProcessingTimeCounts()[2]);
+    }
+
+    @Test
+    public void testAckWaitEndsAckPending() throws Exception {
+        final ConsumerMetricsRecorder recorder = new ConsumerMetricsRecorder("subject", Duration.ofMillis(10));
+        recorder.delivered(message(1, 0, 0));
+        Thread.sleep(20);
+        assertEquals(0, recorder.sample().getAckPending());
+    }
+}
@@ -0,0 +1,95 @@
+package io.nats.vertx.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static io.nats.client.support.NatsKeyValueUtil.getDeleteHeaders;
+import static io.nats.vertx.impl.KeyValueTestUtils.entry;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeyValueNearCacheImplTest {
+
+    @Test
+    public void testLookupEvictAndHitRatio() {
+        final KeyValueNearCacheImpl cache = new KeyValueNearCacheImpl(null, 2, null);
+        assertNull(cache.lookup("a", 0));
+        cache.loaded("a", entry("a", 1, "1", null), cache.epoch(), 0);
+        cache.loaded("b", null, cache.epoch(), 0);
+        assertEquals("1", cache.lookup("a", 0).entry.getValueAsString());
+        assertNull(cache.lookup("b", 0).entry);
+
+        // b was used last, so a is evicted
+        cache.lookup("b", 0);
+        cache.loaded("c", entry("c", 2, "2", null), cache.epoch(), 0);
+        assertEquals(2, cache.getSize());
+        assertNull(cache.lookup("a", 0));
+
+        assertEquals(3, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0.6, cache.getHitRatio(), 0.0001);
+    }
+
+    @Test
+    public void testWatchUpdatesCachedKeys() {
+        final KeyValueNearCacheImpl cache = new KeyValueNearCacheImpl(null, 10, null);
+        cache.loaded("a", entry("a", 1, "1", null), cache.epoch(), 0);
+
+        cache.watch(entry("a", 3, "3", null));
+        assertEquals("3", cache.lookup("a", 0).entry.getValueAsString());
+
+        // an older revision does not replace a newer one, keys not cached are not added
+        cache.watch(entry("a", 2, "2", null));
+        cache.watch(entry("b", 4, "4", null));
+        assertEquals(3, cache.lookup("a", 0).entry.getRevision());
+        assertNull(cache.lookup("b", 0));
+
+        cache.watch(entry("a", 5, null, getDeleteHeaders()));
+        assertEquals(5, cache.lookup("a", 0).entry.getRevision());
+    }
+
+    @Test
+    public void testStaleLoadIsNotStored() {
+        final KeyValueNearCacheImpl cache = new KeyValueNearCacheImpl(null, 10, null);
+        final long epoch = cache.epoch();
+        cache.watch(entry("a", 2, "2", null));
+        cache.loaded("a", entry("a", 1, "1", null), epoch, 0);
+        assertNull(cache.lookup("a", 0));
+
+        // a change of another key does not hold the load back
+        final long next = cache.epoch();
+        cache.invalidate("b");
+        cache.loaded("a", entry("a", 2, "2", null), next, 0);
+        assertEquals(2, cache.lookup("a", 0).entry.getRevision());
+
+        final long last = cache.epoch();
+        cache.invalidate("a");
+        cache.loaded("a", entry("a", 3, "3", null), last, 0);
+        assertNull(cache.lookup("a", 0));
+    }
+
+    @Test
+    public void testForgottenChangesHoldOldLoadsBack() {
+        final KeyValueNearCacheImpl cache = new KeyValueNearCacheImpl(null, 10, null);
+        final long epoch = cache.epoch();
+        cache.invalidate("a");
+        for (int i = 0; i < KeyValueNearCacheImpl.MAX_CHANGES_TRACKED; i++) {
+            cache.invalidate("k" + i);
+        }
+        cache.loaded("a", entry("a", 1, "1", null), epoch, 0);
+        assertNull(cache.lookup("a", 0));
+
+        cache.loaded("a", entry("a", 2, "2", null), cache.epoch(), 0);
+        assertEquals(2, cache.lookup("a", 0).entry.getRevision());
+    }
+
+    @Test
+    public void testTtl() {
+        final KeyValueNearCacheImpl cache = new KeyValueNearCacheImpl(null, 10, Duration.ofMillis(5));
+        cache.loaded("a", entry("a", 1, "1", null), cache.epoch(), 0);
+        assertNotNull(cache.lookup("a", TimeUnit.MILLISECONDS.toNanos(5)));
+        assertNull(cache.lookup("a", TimeUnit.MILLISECONDS.toNanos(6)));
+        assertEquals(0, cache.getSize());
+    }
+}
@@ -0,0 +1,32 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.api.KeyValueEntry;
+import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsJetStreamMetaData;
+import io.nats.client.impl.NatsMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Key value entries for unit tests, as a watch of bucket "bucket" would deliver them.
+ */
+public class KeyValueTestUtils {
+
+    static KeyValueEntry entry(String key, long revision, String value, Headers headers) {
+        final String replyTo = "$JS.ACK.stream.consumer.1." + revision + ".1."
+            + TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) + ".0";
+        final byte[] data = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        return new KeyValueEntry(new NatsMessage("$KV.bucket." + key, replyTo, headers, data) {
+            @Override
+            public boolean isJetStream() {
+                return true;
+            }
+
+            @Override
+            public NatsJetStreamMetaData metaData() {
+                return new NatsJetStreamMetaData(this);
+            }
+        });
+    }
+}
@@ -0,0 +1,60 @@
+package io.nats.vertx.impl;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.impl.ContextInternal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static io.nats.client.support.NatsKeyValueUtil.getPurgeHeaders;
+import static io.nats.vertx.impl.KeyValueTestUtils.entry;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MaterializedKeyValueImplTest {
+
+    final Vertx vertx = Vertx.vertx();
+    final ContextInternal context = (ContextInternal) vertx.getOrCreateContext();
+
+    @AfterEach
+    public void after() {
+        vertx.close();
+    }
+
+    @Test
+    public void testLoadAndScan() {
+        final MaterializedKeyValueImpl replica = new MaterializedKeyValueImpl(null, context);
+        replica.watch(entry("app.a", 1, "1", null));
+        replica.watch(entry("app.b", 2, "2", null));
+        replica.watch(entry("other", 3, "3", null));
+        assertFalse(replica.loaded().isComplete());
+        replica.endOfData();
+        assertTrue(replica.loaded().succeeded());
+
+        assertEquals("1", replica.get("app.a").getValueAsString());
+        assertEquals(Arrays.asList("app.a", "app.b", "other"), replica.keys());
+        assertEquals(Arrays.asList("app.a", "app.b"), replica.keys("app."));
+        assertEquals(2, replica.scan("app.").size());
+        assertEquals(3, replica.getRevision());
+
+        replica.watch(entry("app.a", 4, null, getPurgeHeaders()));
+        assertNull(replica.get("app.a"));
+        assertEquals(2, replica.size());
+        assertEquals(4, replica.getRevision());
+    }
+
+    @Test
+    public void testAwaitRevision() throws Exception {
+        final MaterializedKeyValueImpl replica = new MaterializedKeyValueImpl(null, context);
+        replica.watch(entry("a", 1, "1", null));
+        assertTrue(replica.awaitRevision(1).succeeded());
+
+        final Future<Void> later = replica.awaitRevision(3);
+        replica.watch(entry("a", 2, "2", null));
+        assertFalse(later.isComplete());
+        replica.watch(entry("b", 4, "4", null));
+        assertNull(later.toCompletionStage().toCompletableFuture().get(1, TimeUnit.SECONDS));
+    }
+}
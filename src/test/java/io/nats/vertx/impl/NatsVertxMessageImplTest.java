@@ -0,0 +1,69 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.Message;
+import io.nats.vertx.NatsVertxMessage;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.impl.ContextInternal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NatsVertxMessageImplTest {
+
+    final Vertx vertx = Vertx.vertx();
+    final ContextInternal context = (ContextInternal) vertx.getOrCreateContext();
+    final AtomicInteger acks = new AtomicInteger();
+
+    @AfterEach
+    public void after() {
+        vertx.close();
+    }
+
+    Message message(boolean fail) {
+        return (Message) Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[]{Message.class},
+            (proxy, method, args) -> {
+                if (fail) {
+                    throw new IllegalStateException("Message is not bound to a subscription.");
+                }
+                acks.incrementAndGet();
+                return null;
+            });
+    }
+
+    @Test
+    public void testAckCompletesWithoutHop() {
+        final NatsVertxMessage message = new NatsVertxMessageImpl(message(false), context);
+        final Future<Void> ack = message.ackAsync();
+        assertTrue(ack.succeeded());
+        assertTrue(message.nakAsync().succeeded());
+        assertTrue(message.termAsync().succeeded());
+        assertTrue(message.inProgressAsync().succeeded());
+        assertEquals(4, acks.get());
+    }
+
+    @Test
+    public void testAckFailure() {
+        final NatsVertxMessage message = new NatsVertxMessageImpl(message(true), context);
+        final Future<Void> ack = message.ackAsync();
+        assertTrue(ack.failed());
+        assertTrue(ack.cause() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testAckAndForgetReportsFailure() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        context.exceptionHandler(e -> latch.countDown());
+        new NatsVertxMessageImpl(message(true), context).ackAndForget();
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        new NatsVertxMessageImpl(message(false), context).ackAndForget();
+        assertEquals(1, acks.get());
+    }
+}
@@ -0,0 +1,162 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.Message;
+import io.nats.client.impl.NatsJetStreamMetaData;
+import io.nats.client.impl.NatsMessage;
+import io.nats.vertx.NatsVertxMessage;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.impl.ContextInternal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedProcessorImplTest {
+
+    final Vertx vertx = Vertx.vertx();
+    final ContextInternal context = (ContextInternal) vertx.getOrCreateContext();
+    final List<Long> acked = new CopyOnWriteArrayList<>();
+    final List<Long> naked = new CopyOnWriteArrayList<>();
+    final List<Long> processedA = new CopyOnWriteArrayList<>();
+    final List<Throwable> errors = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    public void after() {
+        vertx.close();
+    }
+
+    Message message(String key, long sequence) {
+        final String replyTo = "$JS.ACK.stream.consumer.1." + sequence + "." + sequence + ".0.0";
+        return new NatsMessage("orders." + key, replyTo, null) {
+            @Override
+            public boolean isJetStream() {
+                return true;
+            }
+
+            @Override
+            public NatsJetStreamMetaData metaData() {
+                return new NatsJetStreamMetaData(this);
+            }
+
+            @Override
+            public void ack() {
+                acked.add(sequence);
+            }
+
+            @Override
+            public void nak() {
+                naked.add(sequence);
+            }
+        };
+    }
+
+    /**
+     * A processor where the first attempt of sequence 1 fails a little later, so the messages of its key queue up behind it.
+     */
+    PartitionedProcessorImpl processor(boolean cumulative) {
+        final AtomicBoolean failedOnce = new AtomicBoolean();
+        final Dispatcher dispatcher = (Dispatcher) Proxy.newProxyInstance(Dispatcher.class.getClassLoader(),
+            new Class<?>[]{Dispatcher.class}, (proxy, method, args) -> null);
+        final Connection conn = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+            new Class<?>[]{Connection.class}, (proxy, method, args) -> null);
+        final PartitionedProcessorImpl processor = new PartitionedProcessorImpl(context, conn, dispatcher, 2,
+            NatsVertxMessage::getSubject,
+            m -> {
+                final long sequence = m.metaData().streamSequence();
+                if (m.getSubject().equals("orders.a")) {
+                    processedA.add(sequence);
+                }
+                if (sequence == 1 && failedOnce.compareAndSet(false, true)) {
+                    final Promise<Void> promise = m.context().promise();
+                    m.context().owner().setTimer(100, id -> promise.fail("Failed " + sequence));
+                    return promise.future();
+                }
+                return Future.succeededFuture();
+            },
+            new AtomicReference<>(errors::add));
+        processor.cumulative(cumulative);
+        return processor;
+    }
+
+    void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 500 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test
+    public void testExplicitFailureNaksTheRestOfTheKey() throws Exception {
+        final PartitionedProcessorImpl processor = processor(false);
+        processor.onMessage(message("a", 1));
+        processor.onMessage(message("a", 2));
+        processor.onMessage(message("b", 3));
+        processor.onMessage(message("a", 4));
+
+        // 2 and 4 are not processed before 1, they are nak'd after it
+        await(() -> naked.size() == 3);
+        assertEquals(Arrays.asList(1L, 2L, 4L), naked);
+        assertEquals(Arrays.asList(1L), processedA);
+        assertEquals(Arrays.asList(3L), acked);
+        assertEquals(1, errors.size());
+
+        // a message of the key that arrives before the redelivery is nak'd too
+        processor.onMessage(message("a", 5));
+        await(() -> naked.size() == 4);
+        assertEquals(5L, naked.get(3));
+
+        // the redeliveries come back in order, the failed message first
+        processor.onMessage(message("a", 1));
+        processor.onMessage(message("a", 2));
+        processor.onMessage(message("a", 4));
+        processor.onMessage(message("a", 5));
+        await(() -> acked.size() == 5);
+        assertEquals(Arrays.asList(1L, 1L, 2L, 4L, 5L), processedA);
+        assertEquals(Arrays.asList(3L, 1L, 2L, 4L, 5L), acked);
+        assertEquals(0, processor.getPending());
+        assertEquals(5, processor.getAckFloor());
+    }
+
+    @Test
+    public void testCumulativeFailureHoldsTheRestOfTheKey() throws Exception {
+        final PartitionedProcessorImpl processor = processor(true);
+        processor.onMessage(message("a", 1));
+        processor.onMessage(message("a", 2));
+        processor.onMessage(message("b", 3));
+        processor.onMessage(message("a", 4));
+
+        // 3 is processed, 2 and 4 wait for 1, nothing is acked past the failed message
+        await(() -> errors.size() == 1);
+        Thread.sleep(100);
+        assertEquals(Arrays.asList(1L), processedA);
+        assertTrue(acked.isEmpty());
+        assertTrue(naked.isEmpty());
+        assertEquals(4, processor.getPending());
+
+        // the server redelivers from the floor, only the failed message is processed again
+        processor.onMessage(message("a", 1));
+        processor.onMessage(message("a", 2));
+        processor.onMessage(message("b", 3));
+        processor.onMessage(message("a", 4));
+        await(() -> processor.getPending() == 0);
+        assertEquals(Arrays.asList(1L, 1L, 2L, 4L), processedA);
+        // the floor moves as the held messages are done, the last ack covers everything
+        assertFalse(acked.isEmpty());
+        assertEquals(4L, acked.get(acked.size() - 1));
+        assertEquals(4, processor.getAckFloor());
+        assertEquals(4, processor.getProcessed());
+        assertEquals(1, processor.getFailed());
+    }
+}
@@ -0,0 +1,67 @@
+package io.nats.vertx.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PublishWindowTest {
+
+    static final long FAST = Duration.ofMillis(1).toNanos();
+    static final long SLOW = Duration.ofMillis(100).toNanos();
+
+    @Test
+    public void testGrowsAdditively() {
+        PublishWindow window = new PublishWindow(1000, Duration.ofMillis(10));
+        assertEquals(PublishWindow.INITIAL_WINDOW, window.limit());
+
+        // each full window of fast acks grows the window by about one
+        long seq = 0;
+        for (int i = 0; i < PublishWindow.INITIAL_WINDOW * 2; i++) {
+            seq++;
+            window.onAck(seq, FAST, seq);
+        }
+        assertTrue(window.limit() > PublishWindow.INITIAL_WINDOW);
+        assertTrue(window.limit() <= PublishWindow.INITIAL_WINDOW + 2);
+    }
+
+    @Test
+    public void testNeverExceedsMax() {
+        PublishWindow window = new PublishWindow(40, Duration.ofMillis(10));
+        for (long seq = 1; seq < 100_000; seq++) {
+            window.onAck(seq, FAST, seq);
+        }
+        assertEquals(40, window.limit());
+    }
+
+    @Test
+    public void testCutsOncePerWindow() {
+        PublishWindow window = new PublishWindow(1000, Duration.ofMillis(10));
+
+        // 32 publishes in flight, all of them late
+        window.onAck(1, SLOW, 32);
+        assertEquals(16, window.limit());
+        for (long seq = 2; seq <= 32; seq++) {
+            window.onAck(seq, SLOW, 32);
+        }
+        assertEquals(16, window.limit());
+
+        // a publish sent after the cut cuts again
+        window.onTimeout(33, 40);
+        assertEquals(8, window.limit());
+    }
+
+    @Test
+    public void testNeverBelowOne() {
+        PublishWindow window = new PublishWindow(1000, Duration.ofMillis(10));
+        for (long seq = 1; seq < 100; seq++) {
+            window.onTimeout(seq, seq);
+        }
+        assertEquals(1, window.limit());
+
+        window.onAck(100, FAST, 100);
+        assertTrue(window.limit() >= 1);
+    }
+}
@@ -0,0 +1,94 @@
+package io.nats.vertx.impl;
+
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.Message;
+import io.vertx.core.Vertx;
+import io.vertx.core.impl.ContextInternal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SubjectReadStreamTest {
+
+    final Vertx vertx = Vertx.vertx();
+    final ContextInternal context = (ContextInternal) vertx.getOrCreateContext();
+    final AtomicBoolean dispatcherClosed = new AtomicBoolean();
+
+    @AfterEach
+    public void after() {
+        vertx.close();
+    }
+
+    Connection connection() {
+        final Dispatcher dispatcher = (Dispatcher) Proxy.newProxyInstance(Dispatcher.class.getClassLoader(),
+            new Class<?>[]{Dispatcher.class}, (proxy, method, args) -> null);
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "createDispatcher":
+                        return dispatcher;
+                    case "closeDispatcher":
+                        dispatcherClosed.set(true);
+                        return null;
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    @Test
+    public void testIdleTimeoutFailsStream() throws Exception {
+        final CompletableFuture<Throwable> failed = new CompletableFuture<>();
+        final CompletableFuture<Void> ended = new CompletableFuture<>();
+        context.runOnContext(v -> {
+            // no consumer is started, so no message ever arrives
+            final SubjectReadStream<Message> stream = new SubjectReadStream<>(context, connection(), null, m -> m,
+                Integer.MAX_VALUE, new AtomicReference<>());
+            stream.exceptionHandler(failed::complete)
+                .endHandler(ended::complete)
+                .handler(m -> failed.completeExceptionally(new AssertionError("Unexpected message")));
+            stream.idleTimeout(Duration.ofMillis(50));
+        });
+
+        assertTrue(failed.get(5, TimeUnit.SECONDS) instanceof IOException);
+        ended.get(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 50 && !dispatcherClosed.get(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(dispatcherClosed.get());
+    }
+
+    @Test
+    public void testPausedStreamDoesNotTimeOut() throws Exception {
+        final CompletableFuture<Throwable> failed = new CompletableFuture<>();
+        final AtomicReference<SubjectReadStream<Message>> ref = new AtomicReference<>();
+        context.runOnContext(v -> {
+            final SubjectReadStream<Message> stream = new SubjectReadStream<>(context, connection(), null, m -> m,
+                Integer.MAX_VALUE, new AtomicReference<>());
+            stream.exceptionHandler(failed::complete)
+                .handler(m -> failed.completeExceptionally(new AssertionError("Unexpected message")))
+                .pause();
+            stream.idleTimeout(Duration.ofMillis(50));
+            ref.set(stream);
+        });
+
+        // the reader holds back the messages, several timeouts pass without failing the stream
+        Thread.sleep(300);
+        assertFalse(failed.isDone());
+        assertFalse(dispatcherClosed.get());
+
+        // once resumed the timeout counts again
+        context.runOnContext(v -> ref.get().resume());
+        assertTrue(failed.get(5, TimeUnit.SECONDS) instanceof IOException);
+    }
+}
@@ -3,12 +3,17 @@ package io.nats.vertx.impl;
 
 import io.nats.NatsServerRunner;
 import io.nats.client.*;
+import io.nats.client.api.AckPolicy;
+import io.nats.client.api.ConsumerConfiguration;
 import io.nats.client.api.StorageType;
 import io.nats.client.api.StreamConfiguration;
 import io.nats.client.api.StreamInfo;
 import io.nats.vertx.*;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
 import org.junit.jupiter.api.*;
@@ -67,6 +72,118 @@ class SubscriptionReadStreamImplTest {
 
 
 
+    @Test
+    public void testFetchPrefetch(final VertxTestContext testContext) {
+        final NatsClient natsClient = TestUtils.natsClient(port, Vertx.vertx(), Throwable::printStackTrace);
+        final NatsStream natsStream = TestUtils.jetStream(natsClient);
+        final String data = "data";
+        final Future<SubscriptionReadStream> subscribeFuture = natsStream.subscribe(subjectName,
+                PullSubscribeOptions.builder().build());
+        subscribeFuture.onSuccess(subscription -> {
+
+                    for (int i = 0; i < 30; i++) {
+                        nc.publish(subjectName, (data + i).getBytes());
+                    }
+
+                    // the second and third batch are pulled while the previous one is handled
+                    subscription.prefetch(20, 0);
+                    final AtomicInteger messageCount = new AtomicInteger();
+                    subscription.fetch(10, Duration.ofSeconds(5))
+                        .compose(events -> {
+                            events.forEach(NatsVertxMessage::ack);
+                            messageCount.addAndGet(events.size());
+                            return subscription.fetch(10, Duration.ofSeconds(5));
+                        })
+                        .compose(events -> {
+                            events.forEach(NatsVertxMessage::ack);
+                            messageCount.addAndGet(events.size());
+                            return subscription.fetch(10, Duration.ofSeconds(5));
+                        })
+                        .onSuccess(events -> {
+                            events.forEach(NatsVertxMessage::ack);
+                            messageCount.addAndGet(events.size());
+                            if (messageCount.get() == 30) {
+                                testContext.completeNow();
+                            }
+                            else {
+                                testContext.failNow("Expected 30 messages, got " + messageCount.get());
+                            }
+                            TestUtils.closeClient(natsClient);
+                        }).onFailure(testContext::failNow);
+                }
+        ).onFailure(testContext::failNow);
+    }
+
+    @Test
+    public void testFetchPrefetchExpiresFirst(final VertxTestContext testContext) {
+        final Vertx vertx = Vertx.vertx();
+        final NatsClient natsClient = TestUtils.natsClient(port, vertx, Throwable::printStackTrace);
+        final NatsStream natsStream = TestUtils.jetStream(natsClient);
+        final String data = "data";
+        natsStream.subscribe(subjectName, PullSubscribeOptions.builder().build()).onSuccess(subscription -> {
+
+                    for (int i = 0; i < 5; i++) {
+                        nc.publish(subjectName, (data + i).getBytes());
+                    }
+
+                    // the first fetch leaves a prefetch pull that expires early in the second fetch,
+                    // the messages published after it expired still fill the second fetch
+                    subscription.prefetch(5, 0);
+                    subscription.fetch(5, Duration.ofSeconds(2))
+                        .compose(events -> {
+                            events.forEach(NatsVertxMessage::ack);
+                            final Promise<Void> later = Promise.promise();
+                            vertx.setTimer(1200, id -> later.complete());
+                            return later.future();
+                        })
+                        .compose(v -> {
+                            vertx.setTimer(1200, id -> {
+                                for (int i = 5; i < 10; i++) {
+                                    nc.publish(subjectName, (data + i).getBytes());
+                                }
+                            });
+                            return subscription.fetch(5, Duration.ofSeconds(2));
+                        })
+                        .onSuccess(events -> {
+                            events.forEach(NatsVertxMessage::ack);
+                            if (events.size() == 5) {
+                                testContext.completeNow();
+                            }
+                            else {
+                                testContext.failNow("Expected 5 messages, got " + events.size());
+                            }
+                            TestUtils.closeClient(natsClient);
+                        }).onFailure(testContext::failNow);
+                }
+        ).onFailure(testContext::failNow);
+    }
+
+    @Test
+    public void testFetchDoesNotHoldWorker(final VertxTestContext testContext) {
+        final Vertx vertx = Vertx.vertx(new VertxOptions().setWorkerPoolSize(1));
+        final NatsClient natsClient = TestUtils.natsClient(port, vertx, Throwable::printStackTrace);
+        final NatsStream natsStream = TestUtils.jetStream(natsClient);
+        natsStream.subscribe(subjectName, PullSubscribeOptions.builder().build()).onSuccess(subscription -> {
+
+                    // long polls on an empty stream, the only worker must stay free
+                    for (int i = 0; i < 4; i++) {
+                        subscription.fetch(10, Duration.ofSeconds(3));
+                    }
+                    final long start = System.currentTimeMillis();
+                    vertx.executeBlocking(() -> System.currentTimeMillis() - start, false)
+                        .onSuccess(elapsed -> {
+                            if (elapsed < 1000) {
+                                testContext.completeNow();
+                            }
+                            else {
+                                testContext.failNow("Worker was blocked for " + elapsed + "ms");
+                            }
+                            TestUtils.closeClient(natsClient);
+                        }).onFailure(testContext::failNow);
+                }
+        ).onFailure(testContext::failNow);
+    }
+
     @Test
     public void testIterate(final VertxTestContext testContext) {
         final NatsClient natsClient = TestUtils.natsClient(port, Vertx.vertx(), Throwable::printStackTrace);
@@ -106,6 +223,152 @@ class SubscriptionReadStreamImplTest {
         );
     }
 
+    @Test
+    public void testIterateStream(final VertxTestContext testContext) {
+        final NatsClient natsClient = TestUtils.natsClient(port, Vertx.vertx(), Throwable::printStackTrace);
+        final NatsStream natsStream = TestUtils.jetStream(natsClient);
+        final String data = "data";
+        natsStream.subscribe(subjectName, PullSubscribeOptions.builder().build()).onSuccess(subscription -> {
+
+                    for (int i = 0; i < 10; i++) {
+                        nc.publish(subjectName, (data + i).getBytes());
+                    }
+
+                    final AtomicInteger messageCount = new AtomicInteger();
+                    subscription.iterateStream(10, Duration.ofSeconds(5))
+                        .exceptionHandler(testContext::failNow)
+                        .endHandler(v -> {
+                            if (messageCount.get() == 10) {
+                                testContext.completeNow();
+                            }
+                            else {
+                                testContext.failNow("Expected 10 messages, got " + messageCount.get());
+                            }
+                            TestUtils.closeClient(natsClient);
+                        })
+                        .handler(message -> {
+                            message.ack();
+                            messageCount.incrementAndGet();
+                        });
+                }
+        ).onFailure(testContext::failNow);
+    }
+
+    @Test
+    public void testProcess(final VertxTestContext testContext) {
+        final Vertx vertx = Vertx.vertx();
+        final NatsClient natsClient = TestUtils.natsClient(port, vertx, Throwable::printStackTrace);
+        final NatsStream natsStream = TestUtils.jetStream(natsClient);
+        final String data = "data";
+        natsStream.subscribe(subjectName, PullSubscribeOptions.builder().build()).onSuccess(subscription -> {
+
+                    for (int i = 0; i < 100; i++) {
+                        nc.publish(subjectName, (data + i).getBytes());
+                    }
+
+                    final AtomicInteger messageCount = new AtomicInteger();
+                    final PullProcessor processor = subscription.process(20, 500, 4, 0.5, message -> {
+                        if (Context.isOnEventLoopThread()) {
+                            throw new IllegalStateException("Work ran on the event loop");
+                        }
+                        messageCount.incrementAndGet();
+                    });
+                    vertx.setPeriodic(50, id -> {
+                        if (processor.getProcessed() == 100) {
+                            vertx.cancelTimer(id);
+                            processor.stop().onSuccess(v -> {
+                                if (messageCount.get() == 100 && processor.getFailed() == 0) {
+                                    testContext.completeNow();
+                                }
+                                else {
+                                    testContext.failNow("Expected 100 messages, got " + messageCount.get());
+                                }
+                                TestUtils.closeClient(natsClient);
+                            }).onFailure(testContext::failNow);
+                        }
+                    });
+                }
+        ).onFailure(testContext::failNow);
+    }
+
+    @Test
+    public void testDrain(final VertxTestContext testContext) {
+        final NatsClient natsClient = TestUtils.natsClient(port, Vertx.vertx(), Throwable::printStackTrace);
+        final NatsStream natsStream = TestUtils.jetStream(natsClient);
+        final String data = "data";
+        natsStream.subscribe(subjectName, PullSubscribeOptions.builder().durable("drainDurable").build()).onSuccess(subscription -> {
+
+                    for (int i = 0; i < 20; i++) {
+                        nc.publish(subjectName, (data + i).getBytes());
+                    }
+
+                    // acks are held by the batcher and the second batch is prefetched, the drain settles both
+                    subscription.ackBatching(100, Duration.ofSeconds(30)).prefetch(10, 0);
+                    subscription.fetch(10, 1000)
+                        .compose(messages -> {
+                            messages.forEach(NatsVertxMessage::ackAsync);
+                            return subscription.drain(Duration.ofSeconds(5));
+                        })
+                        .onSuccess(v -> {
+                            try {
+                                long ackPending = -1;
+                                for (int i = 0; i < 20 && ackPending != 0; i++) {
+                                    Thread.sleep(50);
+                                    ackPending = nc.jetStreamManagement().getConsumerInfo(subjectName, "drainDurable").getNumAckPending();
+                                }
+                                if (ackPending == 0) {
+                                    testContext.completeNow();
+                                }
+                                else {
+                                    testContext.failNow("Expected no ack pending, got " + ackPending);
+                                }
+                            } catch (Exception e) {
+                                testContext.failNow(e);
+                            }
+                            TestUtils.closeClient(natsClient);
+                        })
+                        .onFailure(testContext::failNow);
+                }
+        ).onFailure(testContext::failNow);
+    }
+
+    @Test
+    public void testDrainAckAll(final VertxTestContext testContext) {
+        final NatsClient natsClient = TestUtils.natsClient(port, Vertx.vertx(), Throwable::printStackTrace);
+        final NatsStream natsStream = TestUtils.jetStream(natsClient);
+        final String data = "data";
+        final PullSubscribeOptions options = PullSubscribeOptions.builder()
+            .configuration(ConsumerConfiguration.builder().ackPolicy(AckPolicy.All).build()).build();
+        natsStream.subscribe(subjectName, options).onSuccess(subscription -> {
+
+                    for (int i = 0; i < 10; i++) {
+                        nc.publish(subjectName, (data + i).getBytes());
+                    }
+
+                    // only the last message goes to the server, the drain must still see all of them settled
+                    subscription.ackBatching(100, Duration.ofSeconds(30));
+                    final long[] start = new long[1];
+                    subscription.fetch(10, 1000)
+                        .compose(messages -> {
+                            messages.forEach(NatsVertxMessage::ackAsync);
+                            start[0] = System.currentTimeMillis();
+                            return subscription.drain(Duration.ofSeconds(10));
+                        })
+                        .onSuccess(v -> {
+                            final long elapsed = System.currentTimeMillis() - start[0];
+                            if (elapsed < 5000) {
+                                testContext.completeNow();
+                            }
+                            else {
+                                testContext.failNow("Drain waited " + elapsed + "ms");
+                            }
+                            TestUtils.closeClient(natsClient);
+                        })
+                        .onFailure(testContext::failNow);
+                }
+        ).onFailure(testContext::failNow);
+    }
+
     @AfterAll
     public static void afterAll() throws Exception {
 